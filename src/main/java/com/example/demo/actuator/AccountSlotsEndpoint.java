@@ -0,0 +1,33 @@
+package com.example.demo.actuator;
+
+import com.example.demo.service.AccountSlotService;
+import com.example.demo.service.AccountSlotService.SlotInfo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Административное управление слотами баланса: GET /actuator/accountslots/{userId}
+ * и POST /actuator/accountslots/{userId} с телом {"slots": N}. Доступ по HTTP только с ролью ADMIN
+ * (SecurityConfig); роль попадает в токен при входе пользователей из security.admin.user-ids
+ */
+@Component
+@Endpoint(id = "accountslots")
+@RequiredArgsConstructor
+public class AccountSlotsEndpoint {
+
+    private final AccountSlotService service;
+
+    @ReadOperation
+    public SlotInfo slots(@Selector Long userId) {
+        return service.getSlots(userId);
+    }
+
+    @WriteOperation
+    public SlotInfo setSlots(@Selector Long userId, int slots) {
+        return service.setSlots(userId, slots);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.actuator;
+
+import com.example.demo.service.AccrualService;
+import com.example.demo.service.BalanceScheduler;
+import com.example.demo.service.SchedulerLeaderElection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Состояние выбора лидера периодических задач: GET /actuator/schedulerleader
+ */
+@Component
+@Endpoint(id = "schedulerleader")
+@RequiredArgsConstructor
+public class SchedulerLeaderEndpoint {
+
+    private final SchedulerLeaderElection leaderElection;
+    private final Optional<BalanceScheduler> balanceScheduler;
+
+    /**
+     * @param nodeId      идентификатор этого узла
+     * @param leaderId    идентификатор лидера по данным PostgreSQL; null, если лидера нет
+     * @param leader      является ли лидером этот узел
+     * @param currentTick текущий тик начисления
+     * @param lastTick    последний тик, начисленный этим узлом; null, если узел не начислял
+     *                    или планировщик отключён
+     */
+    public record LeaderInfo(String nodeId, String leaderId, boolean leader, long currentTick, Long lastTick) {}
+
+    @ReadOperation
+    public LeaderInfo leader() {
+        String leaderId = leaderElection.leaderNodeId();
+        return new LeaderInfo(leaderElection.nodeId(), leaderId, leaderElection.nodeId().equals(leaderId),
+                AccrualService.currentTick(), balanceScheduler.map(BalanceScheduler::lastTick).orElse(null));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Кэш, читающий и заполняющий много ключей за один запрос к хранилищу
+ */
+public interface BatchCache {
+
+    /**
+     * Значения по ключам: найденные в кэше и загруженные одним вызовом loader для остальных,
+     * с сохранением загруженного в кэш. Ключей, которых нет ни в кэше, ни в результате loader,
+     * в ответе нет
+     */
+    <K, V> Map<K, V> getAll(Collection<K> keys, Function<Collection<K>, Map<K, V>> loader);
+}
@@ -0,0 +1,171 @@
+package com.example.demo.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сериализатор значений кэша: известные типы пишутся двоичными кодеками (CacheValueCodec), остальные —
+ * резервным сериализатором (JSON). Двоичная запись начинается с заголовка: метка, версия формата,
+ * флаги и номер типа; для RefreshableValue за ним следуют время вычисления и срок истечения, а тело —
+ * это обёрнутое значение. Тело длиннее порога сжимается Deflate.
+ * <p>
+ * Чтение понимает оба формата, поэтому смена формата не требует очистки Redis: JSON-записи прежних
+ * версий читаются как раньше. Записи более новой версии формата (во время отката) и неизвестных типов
+ * считаются промахом кэша и перезаписываются. Для безопасного первого выката двоичного формата узлы
+ * можно сначала развернуть с записью в JSON (writeBinary = false), а затем включить двоичную запись
+ */
+@Slf4j
+public class BinaryCacheSerializer implements RedisSerializer<Object> {
+
+    /**
+     * Первый байт двоичной записи; JSON всегда начинается с ASCII-символа
+     */
+    static final byte MAGIC = (byte) 0xB1;
+
+    /**
+     * Текущая версия формата; увеличивается при несовместимом изменении заголовка или любого кодека.
+     * Версия 2 добавила флаг REFRESHABLE
+     */
+    static final int VERSION = 2;
+
+    private static final int COMPRESSED = 1;
+    /**
+     * После заголовка записаны computeMillis и expiresAt обёртки RefreshableValue
+     */
+    private static final int REFRESHABLE = 2;
+    private static final int HEADER_SIZE = 4;
+
+    private final Map<Class<?>, CacheValueCodec<?>> codecsByType = new HashMap<>();
+    private final Map<Integer, CacheValueCodec<?>> codecsByTag = new HashMap<>();
+    private final RedisSerializer<Object> fallback;
+    private final boolean writeBinary;
+    private final int compressionThreshold;
+
+    /**
+     * @param compressionThreshold размер тела в байтах, начиная с которого оно сжимается
+     */
+    public BinaryCacheSerializer(List<CacheValueCodec<?>> codecs, RedisSerializer<Object> fallback,
+                                 boolean writeBinary, int compressionThreshold) {
+        for (CacheValueCodec<?> codec : codecs) {
+            codecsByType.put(codec.type(), codec);
+            if (codecsByTag.put(codec.tag(), codec) != null) {
+                throw new IllegalArgumentException("Duplicate cache codec tag: " + codec.tag());
+            }
+        }
+        this.fallback = fallback;
+        this.writeBinary = writeBinary;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] serialize(Object value) throws SerializationException {
+        RefreshableValue refreshable = value instanceof RefreshableValue r ? r : null;
+        Object payload = refreshable != null ? refreshable.value() : value;
+        CacheValueCodec<Object> codec = payload == null ? null : (CacheValueCodec<Object>) codecsByType.get(payload.getClass());
+        if (!writeBinary || codec == null) {
+            return fallback.serialize(value);
+        }
+        CacheOutput out = new CacheOutput(256);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(refreshable != null ? REFRESHABLE : 0);
+        out.writeByte(codec.tag());
+        if (refreshable != null) {
+            out.writeVarLong(refreshable.computeMillis());
+            out.writeVarLong(refreshable.expiresAt());
+        }
+        int bodyStart = out.size();
+        codec.write(payload, out);
+        int bodySize = out.size() - bodyStart;
+        if (bodySize < compressionThreshold) {
+            return out.toByteArray();
+        }
+        byte[] deflated = deflate(out.buffer(), bodyStart, bodySize);
+        // Несжимаемое тело (с длиной до сжатия) хранится как есть
+        if (deflated.length + 5 >= bodySize) {
+            return out.toByteArray();
+        }
+        CacheOutput compressed = new CacheOutput(bodyStart + 5 + deflated.length);
+        compressed.write(Arrays.copyOf(out.buffer(), bodyStart));
+        compressed.buffer()[2] |= COMPRESSED;
+        compressed.writeVarLong(bodySize);
+        compressed.write(deflated);
+        return compressed.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0 || bytes[0] != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+        if (bytes.length < HEADER_SIZE) {
+            throw new SerializationException("Truncated cache record of " + bytes.length + " bytes");
+        }
+        int version = bytes[1] & 0xFF;
+        int tag = bytes[3] & 0xFF;
+        CacheValueCodec<?> codec = codecsByTag.get(tag);
+        if (version > VERSION || codec == null) {
+            log.debug("Skipping cache record of format version {} and type {}", version, tag);
+            return null;
+        }
+        CacheInput in = new CacheInput(bytes, HEADER_SIZE, bytes.length);
+        boolean refreshable = (bytes[2] & REFRESHABLE) != 0;
+        long computeMillis = refreshable ? in.readVarLong() : 0;
+        long expiresAt = refreshable ? in.readVarLong() : 0;
+        if ((bytes[2] & COMPRESSED) != 0) {
+            int length = Math.toIntExact(in.readVarLong());
+            byte[] body = inflate(bytes, in.position(), bytes.length - in.position(), length);
+            in = new CacheInput(body, 0, body.length);
+        }
+        Object value = codec.read(in, version);
+        return refreshable ? new RefreshableValue(value, computeMillis, expiresAt) : value;
+    }
+
+    private static byte[] deflate(byte[] bytes, int offset, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(bytes, offset, length);
+            deflater.finish();
+            CacheOutput out = new CacheOutput(length / 2 + 64);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(chunk);
+                out.write(written == chunk.length ? chunk : Arrays.copyOf(chunk, written));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int length, int inflatedLength) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(bytes, offset, length);
+            byte[] body = new byte[inflatedLength];
+            int read = 0;
+            while (read < inflatedLength && !inflater.finished()) {
+                int inflated = inflater.inflate(body, read, inflatedLength - read);
+                if (inflated == 0 && inflater.needsInput()) {
+                    throw new SerializationException("Truncated compressed cache record");
+                }
+                read += inflated;
+            }
+            return body;
+        } catch (DataFormatException e) {
+            throw new SerializationException("Corrupted compressed cache record", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
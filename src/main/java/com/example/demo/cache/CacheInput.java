@@ -0,0 +1,78 @@
+package com.example.demo.cache;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Чтение значения кэша, записанного через CacheOutput; обрезанная запись даёт SerializationException
+ */
+public final class CacheInput {
+
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    CacheInput(byte[] buffer, int offset, int limit) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+    public int readByte() {
+        require(1);
+        return buffer[position++];
+    }
+
+    public long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = (byte) readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed variable-length number in cache record");
+    }
+
+    public long readZigZag() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public String readString() {
+        int length = Math.toIntExact(readVarLong());
+        if (length == 0) {
+            return null;
+        }
+        require(length - 1);
+        String value = new String(buffer, position, length - 1, StandardCharsets.UTF_8);
+        position += length - 1;
+        return value;
+    }
+
+    public List<String> readStrings() {
+        int size = Math.toIntExact(readVarLong());
+        if (size == 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size - 1);
+        for (int i = 1; i < size; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    int position() {
+        return position;
+    }
+
+    private void require(int bytes) {
+        if (bytes < 0 || limit - position < bytes) {
+            throw new SerializationException("Truncated cache record");
+        }
+    }
+}
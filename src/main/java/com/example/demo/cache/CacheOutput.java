@@ -0,0 +1,87 @@
+package com.example.demo.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Буфер для записи значения кэша кодеком. Числа пишутся переменной длиной (7 бит на байт), строки —
+ * длиной и байтами UTF-8; длина null-строки или null-списка записывается как 0, поэтому длины
+ * сдвинуты на 1. В отличие от DataOutputStream над ByteArrayOutputStream не синхронизируется
+ * на каждом байте
+ */
+public final class CacheOutput {
+
+    private byte[] buffer;
+    private int size;
+
+    CacheOutput(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+    }
+
+    public void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * Число со знаком в зигзаг-кодировке, чтобы небольшие отрицательные занимали мало байт
+     */
+    public void writeZigZag(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeString(String value) {
+        if (value == null) {
+            writeByte(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1L);
+        write(bytes);
+    }
+
+    public void writeStrings(List<String> values) {
+        if (values == null) {
+            writeByte(0);
+            return;
+        }
+        writeVarLong(values.size() + 1L);
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (size + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+        }
+    }
+}
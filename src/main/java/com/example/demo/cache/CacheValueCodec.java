@@ -0,0 +1,23 @@
+package com.example.demo.cache;
+
+/**
+ * Двоичный формат одного типа значений кэша для BinaryCacheSerializer
+ *
+ * @param <T> тип значения
+ */
+public interface CacheValueCodec<T> {
+
+    /**
+     * Номер типа в заголовке записи; не меняется, пока в Redis могут остаться записи этого типа
+     */
+    int tag();
+
+    Class<T> type();
+
+    void write(T value, CacheOutput out);
+
+    /**
+     * @param version версия формата, которой записано значение, не больше BinaryCacheSerializer.VERSION
+     */
+    T read(CacheInput in, int version);
+}
@@ -0,0 +1,49 @@
+package com.example.demo.cache;
+
+import com.example.demo.dto.UserDTO;
+import com.example.demo.service.UserSearchCache.CachedPage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Страница результатов поиска: общее количество и пользователи в формате UserDtoCodec
+ */
+public class CachedPageCodec implements CacheValueCodec<CachedPage> {
+
+    private final UserDtoCodec userCodec;
+
+    public CachedPageCodec(UserDtoCodec userCodec) {
+        this.userCodec = userCodec;
+    }
+
+    @Override
+    public int tag() {
+        return 2;
+    }
+
+    @Override
+    public Class<CachedPage> type() {
+        return CachedPage.class;
+    }
+
+    @Override
+    public void write(CachedPage page, CacheOutput out) {
+        out.writeVarLong(page.totalElements());
+        out.writeVarLong(page.content().size());
+        for (UserDTO user : page.content()) {
+            userCodec.write(user, out);
+        }
+    }
+
+    @Override
+    public CachedPage read(CacheInput in, int version) {
+        long totalElements = in.readVarLong();
+        int size = Math.toIntExact(in.readVarLong());
+        List<UserDTO> content = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            content.add(userCodec.read(in, version));
+        }
+        return new CachedPage(content, totalElements);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.cache;
+
+import com.example.demo.config.CacheRefreshProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Вероятностное досрочное обновление записей (XFetch): при каждом чтении запись считается устаревшей
+ * с вероятностью, растущей по мере приближения к истечению и пропорциональной времени её вычисления,
+ * — условие now - computeMillis * beta * ln(random) >= expiresAt. Часто читаемая запись обновляется
+ * в фоне незадолго до истечения, пока читатели получают прежнее значение; редко читаемые записи
+ * истекают как обычно. Одновременно по ключу выполняется не больше одного обновления
+ */
+@Slf4j
+public class EarlyRefresh {
+
+    private final CacheRefreshProperties properties;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Counter refreshes;
+
+    public EarlyRefresh(String cacheName, CacheRefreshProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.refreshes = Counter.builder("cache.early_refreshes")
+                .description("Cache entries recomputed in the background before they expired")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Пора ли обновить запись; значения без RefreshableValue не обновляются
+     */
+    public boolean isDue(Object cached) {
+        if (!properties.enabled() || !(cached instanceof RefreshableValue entry) || entry.expiresAt() == Long.MAX_VALUE) {
+            return false;
+        }
+        // 1 - nextDouble() лежит в (0, 1], логарифм не бесконечен
+        double gap = -entry.computeMillis() * properties.beta() * Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() + gap >= entry.expiresAt();
+    }
+
+    /**
+     * Запускает refresh в фоне, если обновление этого ключа ещё не идёт; ошибка обновления только
+     * логируется — запись истечёт и будет загружена при промахе
+     */
+    public void refresh(String key, Runnable refresh) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    refresh.run();
+                    refreshes.increment();
+                } catch (RuntimeException e) {
+                    log.warn("Early refresh of cache key {} failed", key, e);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.demo.cache;
+
+import org.springframework.cache.Cache.ValueWrapper;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограниченное хранилище L1 одного кэша: вытесняются давно не читавшиеся записи, каждая запись живёт
+ * не дольше ttl. Чтение не берёт блокировок. Каждое удаление получает номер версии и оставляет
+ * на ttl метку удаления ключа, чтобы значение, прочитанное из Redis до инвалидации, не попало
+ * в L1 после неё; загрузки других ключей удаление не затрагивает
+ */
+final class LocalCache {
+
+    /**
+     * Сколько записей просматривается при вытеснении; из них удаляется давнее всех читавшаяся
+     */
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    // Версии не новее этой могли потерять метку удаления (очистка или вытеснение метки)
+    private final AtomicLong forgotten = new AtomicLong();
+
+    LocalCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    ValueWrapper get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.value == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (now - entry.expiresAt >= 0) {
+            entries.remove(key, entry);
+            return null;
+        }
+        entry.lastAccess = now;
+        return entry.value;
+    }
+
+    /**
+     * Текущая версия; берётся перед чтением из Redis или загрузкой и передаётся в putIfUnchanged
+     */
+    long version() {
+        return version.get();
+    }
+
+    void put(String key, ValueWrapper value) {
+        entries.put(key, new Entry(value, version.get(), System.nanoTime() + ttlNanos));
+        trim();
+    }
+
+    /**
+     * Сохраняет значение, только если ключ не удалялся после получения version
+     */
+    void putIfUnchanged(String key, ValueWrapper value, long version) {
+        entries.compute(key, (k, current) -> isUnchanged(current, version)
+                ? new Entry(value, version, System.nanoTime() + ttlNanos)
+                : current);
+        trim();
+    }
+
+    /**
+     * Не удалялся ли ключ после получения version
+     */
+    boolean isUnchanged(String key, long version) {
+        return isUnchanged(entries.get(key), version);
+    }
+
+    void evict(String key) {
+        entries.put(key, new Entry(null, version.incrementAndGet(), System.nanoTime() + ttlNanos));
+        trim();
+    }
+
+    void clear() {
+        forgotten.accumulateAndGet(version.incrementAndGet(), Math::max);
+        entries.clear();
+    }
+
+    /**
+     * Количество записей вместе с метками удаления
+     */
+    int size() {
+        return entries.size();
+    }
+
+    private boolean isUnchanged(Entry current, long version) {
+        return current != null ? current.version <= version : forgotten.get() <= version;
+    }
+
+    /**
+     * Приближённый LRU: из нескольких записей удаляется истёкшая или давнее всех читавшаяся
+     */
+    private void trim() {
+        while (entries.size() > maxEntries) {
+            long now = System.nanoTime();
+            Map.Entry<String, Entry> eldest = null;
+            Iterator<Map.Entry<String, Entry>> sample = entries.entrySet().iterator();
+            for (int i = 0; i < EVICTION_SAMPLE && sample.hasNext(); i++) {
+                Map.Entry<String, Entry> candidate = sample.next();
+                if (now - candidate.getValue().expiresAt >= 0) {
+                    eldest = candidate;
+                    break;
+                }
+                if (eldest == null || candidate.getValue().lastAccess - eldest.getValue().lastAccess < 0) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            Entry removed = eldest.getValue();
+            if (entries.remove(eldest.getKey(), removed) && removed.value == null) {
+                forgotten.accumulateAndGet(removed.version, Math::max);
+            }
+        }
+    }
+
+    /**
+     * Запись или, при value == null, метка удаления ключа
+     */
+    private static final class Entry {
+        private final ValueWrapper value;
+        private final long version;
+        private final long expiresAt;
+        private volatile long lastAccess;
+
+        private Entry(ValueWrapper value, long version, long expiresAt) {
+            this.value = value;
+            this.version = version;
+            this.expiresAt = expiresAt;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo.cache;
+
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.util.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетные чтение и запись записей RedisCache: ключи и значения формируются так же, как в самом
+ * RedisCache (префикс, ConversionService и сериализаторы его конфигурации), поэтому записи
+ * взаимозаменяемы с обычными get и put
+ */
+final class RedisBatchOperations {
+
+    /**
+     * Так RedisCache хранит закэшированный null
+     */
+    private static final byte[] BINARY_NULL_VALUE = RedisSerializer.java().serialize(NullValue.INSTANCE);
+
+    private final RedisCache cache;
+    private final RedisCacheConfiguration configuration;
+    private final StringRedisTemplate redisTemplate;
+
+    RedisBatchOperations(RedisCache cache, StringRedisTemplate redisTemplate) {
+        this.cache = cache;
+        this.configuration = cache.getCacheConfiguration();
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Сохранённые значения (возможно в обёртке RefreshableValue) одним MGET; отсутствующие ключи
+     * и закэшированные null в ответ не попадают
+     */
+    <K> Map<K, Object> get(List<K> keys) {
+        byte[][] rawKeys = keys.stream().map(this::rawKey).toArray(byte[][]::new);
+        List<byte[]> values = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.stringCommands().mGet(rawKeys));
+        Map<K, Object> found = new HashMap<>();
+        for (int i = 0; values != null && i < values.size(); i++) {
+            byte[] value = values.get(i);
+            if (value == null || Arrays.equals(value, BINARY_NULL_VALUE)) {
+                continue;
+            }
+            Object deserialized = configuration.getValueSerializationPair().read(ByteBuffer.wrap(value));
+            if (deserialized != null) {
+                found.put(keys.get(i), deserialized);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Сохранение значений конвейером SET со временем жизни из конфигурации кэша
+     */
+    void put(Map<?, ?> values) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            values.forEach((key, value) -> {
+                Duration ttl = configuration.getTtlFunction().getTimeToLive(key, value);
+                connection.stringCommands().set(rawKey(key),
+                        ByteUtils.getBytes(configuration.getValueSerializationPair().write(value)),
+                        ttl.isZero() || ttl.isNegative() ? Expiration.persistent() : Expiration.from(ttl),
+                        SetOption.upsert());
+            });
+            return null;
+        });
+    }
+
+    private byte[] rawKey(Object key) {
+        String converted = key instanceof String string ? string : configuration.getConversionService().convert(key, String.class);
+        String cacheKey = configuration.usePrefix() ? configuration.getKeyPrefixFor(cache.getName()) + converted : converted;
+        return ByteUtils.getBytes(configuration.getKeySerializationPair().write(cacheKey));
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+
+/**
+ * Значение кэша вместе со временем его вычисления и моментом истечения записи: по ним EarlyRefresh
+ * решает, пора ли обновить запись заранее. Записи без этой обёртки (сохранённые через put или
+ * прежними версиями) досрочно не обновляются
+ *
+ * @param computeMillis время вычисления значения в миллисекундах
+ * @param expiresAt     момент истечения записи в Redis в миллисекундах эпохи; Long.MAX_VALUE — без срока
+ */
+public record RefreshableValue(Object value, long computeMillis, long expiresAt) {
+
+    /**
+     * @param ttl время жизни записи; нулевое означает запись без срока, как и в RedisCacheConfiguration
+     */
+    public static RefreshableValue of(Object value, long computeNanos, Duration ttl) {
+        long now = System.currentTimeMillis();
+        return new RefreshableValue(value, Math.max(1, computeNanos / 1_000_000),
+                ttl.isZero() || ttl.isNegative() ? Long.MAX_VALUE : now + ttl.toMillis());
+    }
+
+    /**
+     * Значение без обёртки, если она есть
+     */
+    public static Object unwrap(Object cached) {
+        return cached instanceof RefreshableValue refreshable ? refreshable.value() : cached;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных загрузок по одному ключу в пределах JVM: первый вызов выполняет загрузку,
+ * остальные ждут её результат или исключение. Промах по популярному ключу даёт один запрос к БД
+ * вместо запроса на каждый поток. Число присоединившихся вызовов считает cache.coalesced
+ */
+public class SingleFlight<K> {
+
+    private final ConcurrentMap<K, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public SingleFlight(String cacheName, MeterRegistry meterRegistry) {
+        this.coalesced = Counter.builder("cache.coalesced")
+                .description("Cache misses served by another call's load of the same key")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> V load(K key, Supplier<V> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return (V) running.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            }
+        }
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        if (e.getCause() instanceof RuntimeException cause) {
+            return cause;
+        }
+        if (e.getCause() instanceof Error cause) {
+            throw cause;
+        }
+        return e;
+    }
+}
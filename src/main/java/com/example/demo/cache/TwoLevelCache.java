@@ -0,0 +1,297 @@
+package com.example.demo.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Кэш из двух уровней: локальная память узла (L1) перед общим Redis (L2). Чтение сначала идёт в L1,
+ * при промахе — в Redis с сохранением найденного в L1. Удаление стирает запись в Redis и в L1 и
+ * рассылает остальным узлам сообщение, чтобы они удалили свою копию в L1.
+ * put не рассылает сообщений: в сервисах он сохраняет загруженное после промаха, а изменения
+ * данных проходят через evict
+ */
+public class TwoLevelCache implements Cache, BatchCache {
+
+    private final Cache remote;
+    private final RedisBatchOperations remoteBatch;
+    private final LocalCache local;
+    private final Consumer<String> invalidationPublisher;
+    private final SingleFlight<String> loads;
+    private final EarlyRefresh earlyRefresh;
+    private final Duration ttl;
+    private final Timer localHits;
+    private final Timer localMisses;
+    private final Timer remoteHits;
+    private final Timer remoteMisses;
+
+    /**
+     * @param invalidationPublisher рассылает ключ удалённой записи другим узлам; null означает очистку кэша
+     * @param ttl                   время жизни записей в Redis, нулевое — без срока
+     */
+    TwoLevelCache(Cache remote, RedisBatchOperations remoteBatch, LocalCache local, Consumer<String> invalidationPublisher,
+                  EarlyRefresh earlyRefresh, Duration ttl, MeterRegistry meterRegistry) {
+        this.remote = remote;
+        this.remoteBatch = remoteBatch;
+        this.local = local;
+        this.invalidationPublisher = invalidationPublisher;
+        this.loads = new SingleFlight<>(remote.getName(), meterRegistry);
+        this.earlyRefresh = earlyRefresh;
+        this.ttl = ttl;
+        this.localHits = timer(meterRegistry, "l1", "hit");
+        this.localMisses = timer(meterRegistry, "l1", "miss");
+        this.remoteHits = timer(meterRegistry, "l2", "hit");
+        this.remoteMisses = timer(meterRegistry, "l2", "miss");
+        meterRegistry.gauge("cache.l1.size", Tags.of("cache", remote.getName()), local, LocalCache::size);
+    }
+
+    @Override
+    public String getName() {
+        return remote.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper stored = lookup(key);
+        return stored != null && stored.get() instanceof RefreshableValue refreshable
+                ? new SimpleValueWrapper(refreshable.value())
+                : stored;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    /**
+     * Одновременные промахи по одному ключу ждут одну загрузку (SingleFlight); в отличие от
+     * RedisCache.get(key, valueLoader) загрузки разных ключей друг друга не ждут. Загруженное значение
+     * сохраняется со временем вычисления, и часто читаемая запись обновляется в фоне до истечения
+     * (EarlyRefresh)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        ValueWrapper stored = lookup(key);
+        if (stored != null) {
+            if (earlyRefresh.isDue(stored.get())) {
+                earlyRefresh.refresh(localKey, () -> load(key, localKey, valueLoader));
+            }
+            return (T) RefreshableValue.unwrap(stored.get());
+        }
+        return loads.load(localKey, () -> {
+            // Предыдущая загрузка могла завершиться между промахом и входом в load
+            ValueWrapper loaded = local.get(localKey);
+            if (loaded != null) {
+                return (T) RefreshableValue.unwrap(loaded.get());
+            }
+            return load(key, localKey, valueLoader);
+        });
+    }
+
+    /**
+     * Ключи ищутся в L1, оставшиеся — одним MGET в Redis, недостающие загружаются одним вызовом loader
+     * и сохраняются в Redis одним конвейером. Как и в get(key, valueLoader), загруженное значение
+     * не сохраняется, если во время загрузки его ключ удалялся
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> getAll(Collection<K> keys, Function<Collection<K>, Map<K, V>> loader) {
+        Map<K, V> result = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        for (K key : keys) {
+            long start = System.nanoTime();
+            ValueWrapper cached = local.get(localKey(key));
+            if (cached != null) {
+                localHits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                result.put(key, (V) RefreshableValue.unwrap(cached.get()));
+            } else {
+                localMisses.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long version = local.version();
+        long start = System.nanoTime();
+        Map<K, Object> stored = remoteBatch.get(missing);
+        // Время одного MGET делится поровну между его ключами
+        long perKey = (System.nanoTime() - start) / missing.size();
+        for (K key : missing) {
+            Object value = stored.get(key);
+            (value != null ? remoteHits : remoteMisses).record(perKey, TimeUnit.NANOSECONDS);
+            if (value != null) {
+                local.putIfUnchanged(localKey(key), new SimpleValueWrapper(value), version);
+                result.put(key, (V) RefreshableValue.unwrap(value));
+            }
+        }
+        missing.removeAll(stored.keySet());
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        start = System.nanoTime();
+        Map<K, V> loaded = loader.apply(missing);
+        long computeNanos = System.nanoTime() - start;
+        Map<K, RefreshableValue> entries = new HashMap<>();
+        loaded.forEach((key, value) -> {
+            if (local.isUnchanged(localKey(key), version)) {
+                entries.put(key, RefreshableValue.of(value, computeNanos, ttl));
+            }
+        });
+        if (!entries.isEmpty()) {
+            remoteBatch.put(entries);
+            entries.forEach((key, entry) -> local.putIfUnchanged(localKey(key), new SimpleValueWrapper(entry), version));
+        }
+        result.putAll(loaded);
+        return result;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        local.put(localKey(key), new SimpleValueWrapper(value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        local.evict(localKey(key));
+        return existing != null ? new SimpleValueWrapper(RefreshableValue.unwrap(existing.get())) : null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        evictLocal(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = remote.evictIfPresent(key);
+        evictLocal(key);
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        clearLocal();
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean present = remote.invalidate();
+        clearLocal();
+        return present;
+    }
+
+    /**
+     * Удаление копии в L1 по сообщению другого узла
+     */
+    void onRemoteEvict(String key) {
+        local.evict(key);
+    }
+
+    void onRemoteClear() {
+        local.clear();
+    }
+
+    /**
+     * Сохранённое значение, возможно в обёртке RefreshableValue: сначала из L1, затем из Redis
+     */
+    private ValueWrapper lookup(Object key) {
+        String localKey = localKey(key);
+        long start = System.nanoTime();
+        ValueWrapper value = local.get(localKey);
+        if (value != null) {
+            localHits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return value;
+        }
+        localMisses.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        long version = local.version();
+        start = System.nanoTime();
+        value = remote.get(key);
+        (value != null ? remoteHits : remoteMisses).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (value != null) {
+            local.putIfUnchanged(localKey, value, version);
+        }
+        return value;
+    }
+
+    /**
+     * Загрузка значения и сохранение в оба уровня. Если во время загрузки запись удалялась, результат
+     * не сохраняется: он мог быть прочитан до изменения данных
+     */
+    private <T> T load(Object key, String localKey, Callable<T> valueLoader) {
+        long version = local.version();
+        long start = System.nanoTime();
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        RefreshableValue entry = RefreshableValue.of(value, System.nanoTime() - start, ttl);
+        if (local.isUnchanged(localKey, version)) {
+            remote.put(key, entry);
+            local.putIfUnchanged(localKey, new SimpleValueWrapper(entry), version);
+        }
+        return value;
+    }
+
+    private void evictLocal(Object key) {
+        String localKey = localKey(key);
+        local.evict(localKey);
+        invalidationPublisher.accept(localKey);
+    }
+
+    private void clearLocal() {
+        local.clear();
+        invalidationPublisher.accept(null);
+    }
+
+    /**
+     * Ключи L1 строковые, как и в Redis, чтобы их можно было передать в сообщении об удалении
+     */
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    private Timer timer(MeterRegistry meterRegistry, String level, String result) {
+        return Timer.builder("cache.level.gets")
+                .description("Cache lookups per level; the count is the number of hits or misses")
+                .tag("cache", remote.getName())
+                .tag("level", level)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
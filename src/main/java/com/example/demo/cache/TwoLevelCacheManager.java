@@ -0,0 +1,101 @@
+package com.example.demo.cache;
+
+import com.example.demo.config.CacheRefreshProperties;
+import com.example.demo.config.LocalCacheProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Менеджер кэшей, добавляющий L1 в памяти узла перед кэшами Redis из LocalCacheProperties.cacheNames.
+ * Удаления рассылаются через канал Redis сообщениями «имя кэша\nключ» (без ключа — очистка кэша);
+ * сообщения от самого узла тоже приходят и лишь повторно удаляют уже удалённое. При выключенном
+ * cache.local эти кэши остаются TwoLevelCache, но с пустым L1 и без рассылки: объединение промахов,
+ * досрочное обновление и пакетное чтение от L1 не зависят
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private final CacheManager remote;
+    private final LocalCacheProperties properties;
+    private final CacheRefreshProperties refreshProperties;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remote, LocalCacheProperties properties,
+                                CacheRefreshProperties refreshProperties, StringRedisTemplate redisTemplate,
+                                MeterRegistry meterRegistry) {
+        this.remote = remote;
+        this.properties = properties;
+        this.refreshProperties = refreshProperties;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Кэши не из списка cacheNames, как и кэши не из Redis, возвращаются без L1
+     */
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache twoLevel = caches.get(name);
+        if (twoLevel != null) {
+            return twoLevel;
+        }
+        Cache cache = remote.getCache(name);
+        if (!properties.cacheNames().contains(name) || !(cache instanceof RedisCache redisCache)) {
+            return cache;
+        }
+        return caches.computeIfAbsent(name, n -> createCache(n, redisCache));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remote.getCacheNames();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('\n');
+        TwoLevelCache cache = caches.get(separator < 0 ? body : body.substring(0, separator));
+        if (cache == null) {
+            return;
+        }
+        if (separator < 0) {
+            cache.onRemoteClear();
+        } else {
+            cache.onRemoteEvict(body.substring(separator + 1));
+        }
+    }
+
+    private TwoLevelCache createCache(String name, RedisCache cache) {
+        Duration ttl = cache.getCacheConfiguration().getTtlFunction().getTimeToLive(null, null);
+        LocalCache local;
+        Consumer<String> publisher;
+        if (properties.enabled()) {
+            log.info("Cache {} uses local L1 of up to {} entries with TTL {}", name, properties.maxEntries(), properties.ttl());
+            local = new LocalCache(properties.maxEntries(), properties.ttl());
+            publisher = key -> redisTemplate.convertAndSend(properties.channel(), key == null ? name : name + '\n' + key);
+        } else {
+            // Пустой L1 только отслеживает удаления, чтобы загрузка, начатая до удаления, не попала в Redis
+            log.info("Cache {} reads Redis directly, local L1 is disabled", name);
+            local = new LocalCache(0, properties.ttl());
+            publisher = key -> {};
+        }
+        return new TwoLevelCache(cache, new RedisBatchOperations(cache, redisTemplate), local, publisher,
+                new EarlyRefresh(name, refreshProperties, meterRegistry), ttl, meterRegistry);
+    }
+}
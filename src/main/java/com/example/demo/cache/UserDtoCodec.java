@@ -0,0 +1,122 @@
+package com.example.demo.cache;
+
+import com.example.demo.dto.UserDTO;
+import com.example.demo.model.DateOfBirthConverter;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * UserDTO: id, имя, дата рождения номером дня вместо строки dd.MM.yyyy, email и телефоны
+ */
+public class UserDtoCodec implements CacheValueCodec<UserDTO> {
+
+    private static final int NO_DATE = 0;
+    private static final int EPOCH_DAY = 1;
+    private static final int TEXT_DATE = 2;
+
+    @Override
+    public int tag() {
+        return 1;
+    }
+
+    @Override
+    public Class<UserDTO> type() {
+        return UserDTO.class;
+    }
+
+    @Override
+    public void write(UserDTO user, CacheOutput out) {
+        // 0 означает null, поэтому id сдвигается на 1
+        out.writeVarLong(user.id() == null ? 0 : user.id() + 1);
+        out.writeString(user.name());
+        writeDate(out, user.dateOfBirth());
+        out.writeStrings(user.emails());
+        out.writeStrings(user.phones());
+    }
+
+    @Override
+    public UserDTO read(CacheInput in, int version) {
+        long id = in.readVarLong();
+        return new UserDTO(id == 0 ? null : id - 1, in.readString(), readDate(in), in.readStrings(), in.readStrings());
+    }
+
+    /**
+     * Строка, которая не разбирается как дата dd.MM.yyyy, сохраняется как есть. Разбор и форматирование
+     * написаны вручную: DateTimeFormatter занимал большую часть времени кодирования
+     */
+    private static void writeDate(CacheOutput out, String date) {
+        if (date == null) {
+            out.writeByte(NO_DATE);
+            return;
+        }
+        LocalDate parsed = parseDate(date);
+        if (parsed == null) {
+            out.writeByte(TEXT_DATE);
+            out.writeString(date);
+            return;
+        }
+        out.writeByte(EPOCH_DAY);
+        out.writeZigZag(parsed.toEpochDay());
+    }
+
+    private static String readDate(CacheInput in) {
+        return switch (in.readByte()) {
+            case NO_DATE -> null;
+            case EPOCH_DAY -> formatDate(LocalDate.ofEpochDay(in.readZigZag()));
+            case TEXT_DATE -> in.readString();
+            default -> throw new SerializationException("Unknown date encoding in cache record");
+        };
+    }
+
+    private static LocalDate parseDate(String date) {
+        if (date.length() != 10 || date.charAt(2) != '.' || date.charAt(5) != '.') {
+            return null;
+        }
+        int day = digits(date, 0, 2);
+        int month = digits(date, 3, 5);
+        int year = digits(date, 6, 10);
+        if (day < 0 || month < 0 || year < 0) {
+            return null;
+        }
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + c - '0';
+        }
+        return result;
+    }
+
+    /**
+     * Даты вне годов 0000–9999 форматируются через DateOfBirthConverter
+     */
+    private static String formatDate(LocalDate date) {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            return DateOfBirthConverter.format(date);
+        }
+        char[] chars = {'0', '0', '.', '0', '0', '.', '0', '0', '0', '0'};
+        put(chars, 0, 2, date.getDayOfMonth());
+        put(chars, 3, 5, date.getMonthValue());
+        put(chars, 6, 10, year);
+        return new String(chars);
+    }
+
+    private static void put(char[] chars, int from, int to, int value) {
+        for (int i = to - 1; i >= from; i--, value /= 10) {
+            chars[i] = (char) ('0' + value % 10);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Set;
+
+/**
+ * Администраторы приложения
+ *
+ * @param userIds пользователи, чей токен при входе получает роль ADMIN (управление слотами баланса)
+ */
+@ConfigurationProperties(prefix = "security.admin")
+public record AdminProperties(
+        @DefaultValue Set<Long> userIds
+) {}
@@ -0,0 +1,20 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки асинхронных переводов (POST /api/transfer/async)
+ *
+ * @param maxInFlight максимальное количество одновременно выполняемых переводов; сверх него запрос отклоняется
+ * @param maxEntries  сколько результатов хранить; при переполнении вытесняются самые старые
+ * @param retention   сколько хранить результат перевода после приёма запроса
+ */
+@ConfigurationProperties(prefix = "transfer.async")
+public record AsyncTransferProperties(
+        @DefaultValue("10000") int maxInFlight,
+        @DefaultValue("100000") int maxEntries,
+        @DefaultValue("10m") Duration retention
+) {}
@@ -0,0 +1,39 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки начисления процентов
+ *
+ * @param enabled    включено ли начисление
+ * @param mode       способ начисления
+ * @param chunkSize  сколько аккаунтов обрабатывается в одной транзакции
+ * @param workers    сколько чанков обрабатывается параллельно
+ * @param maxPasses  сколько раз за тик возвращаться к аккаунтам, заблокированным переводами
+ * @param retryDelay пауза перед повторным проходом
+ */
+@ConfigurationProperties(prefix = "balance.scheduler")
+public record BalanceSchedulerProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("periodic") Mode mode,
+        @DefaultValue("10000") int chunkSize,
+        @DefaultValue("4") int workers,
+        @DefaultValue("3") int maxPasses,
+        @DefaultValue("1s") Duration retryDelay
+) {
+
+    public enum Mode {
+        /**
+         * Планировщик раз в тик переписывает балансы всех аккаунтов
+         */
+        PERIODIC,
+        /**
+         * Баланс хранится вместе с тиком, на который он посчитан, а проценты за прошедшие тики
+         * вычисляются при чтении; в таблицу они записываются, только когда аккаунт участвует в переводе
+         */
+        LAZY
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Формат значений кэшей в Redis
+ *
+ * @param format               формат новых записей; записи обоих форматов читаются всегда
+ *                             (см. BinaryCacheSerializer), поэтому формат можно менять без очистки Redis
+ * @param compressionThreshold размер двоичной записи, начиная с которого она сжимается; Deflate стоит
+ *                             около 10 мкс на запись, поэтому мелкие записи выгоднее хранить как есть
+ */
+@ConfigurationProperties(prefix = "cache.codec")
+public record CacheCodecProperties(
+        @DefaultValue("binary") Format format,
+        @DefaultValue("4KB") DataSize compressionThreshold
+) {
+
+    public enum Format {
+        JSON,
+        BINARY
+    }
+}
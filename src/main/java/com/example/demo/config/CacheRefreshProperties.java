@@ -0,0 +1,16 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Досрочное обновление записей кэшей users и userSearch (см. EarlyRefresh)
+ *
+ * @param enabled включено ли досрочное обновление
+ * @param beta    насколько заранее обновляются записи: больше 1 — раньше, меньше 1 — ближе к истечению
+ */
+@ConfigurationProperties(prefix = "cache.refresh-ahead")
+public record CacheRefreshProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1.0") double beta
+) {}
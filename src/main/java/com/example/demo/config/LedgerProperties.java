@@ -0,0 +1,28 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Настройки in-memory движка переводов (профиль in-memory-ledger)
+ *
+ * @param journalPath     файл журнала упреждающей записи
+ * @param journalSize     размер журнала; при заполнении выполняется внеочередной checkpoint
+ * @param flushInterval   как часто изменённые балансы сбрасываются в таблицу accounts
+ * @param accrualInterval период начисления процентов
+ * @param queueCapacity   максимальная длина входной очереди секвенсора
+ * @param maxBatchSize    сколько команд секвенсор применяет между сбросами журнала на диск
+ */
+@ConfigurationProperties(prefix = "transfer.ledger")
+public record LedgerProperties(
+        @DefaultValue("./data/transfer-journal.bin") Path journalPath,
+        @DefaultValue("64MB") DataSize journalSize,
+        @DefaultValue("1s") Duration flushInterval,
+        @DefaultValue("30s") Duration accrualInterval,
+        @DefaultValue("100000") int queueCapacity,
+        @DefaultValue("1000") int maxBatchSize
+) {}
@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Настройки локального кэша (L1) перед Redis
+ *
+ * @param enabled    включён ли L1; без него все кэши читаются напрямую из Redis
+ * @param cacheNames кэши, получающие L1, а также объединение промахов, досрочное обновление и пакетное
+ *                   чтение (эти три работают и при выключенном L1); остальные работают только через Redis
+ * @param maxEntries максимальное число записей L1 каждого кэша, при превышении вытесняются давно не читавшиеся
+ * @param ttl        время жизни записи L1; ограничивает устаревание, если сообщение об инвалидации потерялось
+ * @param channel    канал Redis, по которому узлы сообщают друг другу об удалении записей
+ */
+@ConfigurationProperties(prefix = "cache.local")
+public record LocalCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("users") List<String> cacheNames,
+        @DefaultValue("10000") int maxEntries,
+        @DefaultValue("1m") Duration ttl,
+        @DefaultValue("cache:invalidation") String channel
+) {}
@@ -1,20 +1,86 @@
 package com.example.demo.config;
 
+import com.example.demo.cache.BinaryCacheSerializer;
+import com.example.demo.cache.CachedPageCodec;
+import com.example.demo.cache.TwoLevelCacheManager;
+import com.example.demo.cache.UserDtoCodec;
+import com.example.demo.service.UserSearchCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.cache.RedisCacheManagerBuilderCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 
 import java.time.Duration;
+import java.util.List;
 
 @Configuration
 public class RedisConfig {
 
+    /**
+     * UserDTO и страницы поиска хранятся в двоичном формате, остальные значения — в JSON
+     */
     @Bean
-    public RedisCacheConfiguration cacheConfiguration() {
+    public RedisCacheConfiguration cacheConfiguration(CacheCodecProperties codecProperties) {
+        UserDtoCodec userCodec = new UserDtoCodec();
+        BinaryCacheSerializer serializer = new BinaryCacheSerializer(List.of(userCodec, new CachedPageCodec(userCodec)),
+                new GenericJackson2JsonRedisSerializer(), codecProperties.format() == CacheCodecProperties.Format.BINARY,
+                Math.toIntExact(codecProperties.compressionThreshold().toBytes()));
         return RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofHours(1)) // Время жизни кэша
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()));
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(serializer));
     }
-}
\ No newline at end of file
+
+    /**
+     * Результаты поиска живут дольше остальных записей: они инвалидируются сменой поколения (UserSearchCache)
+     */
+    @Bean
+    public RedisCacheManagerBuilderCustomizer userSearchCacheCustomizer(RedisCacheConfiguration cacheConfiguration,
+                                                                        UserSearchProperties properties) {
+        return builder -> builder.withCacheConfiguration(UserSearchCache.NAME, cacheConfiguration.entryTtl(properties.cacheTtl()));
+    }
+
+    /**
+     * Кэши Redis; кэши из cache.local.cache-names оборачиваются в TwoLevelCache (TwoLevelCacheManager),
+     * с L1 в памяти узла только при включённом cache.local. Заменяет менеджер из автоконфигурации,
+     * поэтому настройщики RedisCacheManagerBuilderCustomizer применяются здесь
+     */
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, RedisCacheConfiguration cacheConfiguration,
+                                     ObjectProvider<RedisCacheManagerBuilderCustomizer> customizers,
+                                     LocalCacheProperties localCacheProperties,
+                                     CacheRefreshProperties refreshProperties, StringRedisTemplate redisTemplate,
+                                     MeterRegistry meterRegistry) {
+        RedisCacheManager.RedisCacheManagerBuilder builder = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(cacheConfiguration);
+        customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+        RedisCacheManager redisCacheManager = builder.build();
+        redisCacheManager.initializeCaches();
+        return new TwoLevelCacheManager(redisCacheManager, localCacheProperties, refreshProperties, redisTemplate,
+                meterRegistry);
+    }
+
+    /**
+     * Подписка на удаления записей другими узлами
+     */
+    @Bean
+    @ConditionalOnProperty(name = "cache.local.enabled", havingValue = "true", matchIfMissing = true)
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                           CacheManager cacheManager,
+                                                                           LocalCacheProperties localCacheProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((TwoLevelCacheManager) cacheManager, new ChannelTopic(localCacheProperties.channel()));
+        return container;
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.demo.config;
 
+import com.example.demo.actuator.AccountSlotsEndpoint;
 import io.swagger.v3.oas.models.security.SecurityRequirement;
 import io.swagger.v3.oas.models.security.SecurityScheme;
 import lombok.RequiredArgsConstructor;
 import org.springdoc.core.customizers.OpenApiCustomizer;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -33,6 +35,8 @@ public class SecurityConfig {
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
                         // Разрешаем доступ к эндпоинту логина
                         .requestMatchers("/api/auth/login").permitAll()
+                        // Слоты чужих аккаунтов читает и меняет только администратор
+                        .requestMatchers(EndpointRequest.to(AccountSlotsEndpoint.class)).hasRole("ADMIN")
                         // Все остальные запросы требуют аутентификации
                         .anyRequest().authenticated()
                 )
@@ -0,0 +1,57 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки переводов
+ *
+ * @param engine       способ применения перевода к таблице accounts
+ * @param lockTimeout  максимальное время ожидания блокировки строки аккаунта
+ * @param maxRetries   количество повторов перевода при неудачном захвате блокировки или конфликте версий
+ * @param retryBackoff пауза перед повтором, растёт линейно с номером попытки; фактическая пауза
+ *                     выбирается случайно в пределах ±50%, чтобы повторы конкурентов не совпадали
+ * @param batchMaxSize максимальное количество переводов в одном пакетном запросе
+ * @param groupCommit  режим группового коммита одиночных переводов
+ */
+@ConfigurationProperties(prefix = "transfer")
+public record TransferProperties(
+        @DefaultValue("entity") Engine engine,
+        @DefaultValue("2s") Duration lockTimeout,
+        @DefaultValue("3") int maxRetries,
+        @DefaultValue("50ms") Duration retryBackoff,
+        @DefaultValue("10000") int batchMaxSize,
+        @DefaultValue GroupCommit groupCommit
+) {
+
+    /**
+     * @param enabled       одиночные переводы копятся в очереди и коммитятся пачками
+     * @param maxBatchSize  максимальное количество переводов в одной транзакции
+     * @param linger        сколько ждать новых переводов после первого перед коммитом
+     * @param queueCapacity максимальная длина очереди; при переполнении перевод отклоняется
+     */
+    public record GroupCommit(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("100") int maxBatchSize,
+            @DefaultValue("500us") Duration linger,
+            @DefaultValue("10000") int queueCapacity
+    ) {}
+
+    public enum Engine {
+        /**
+         * Загрузка аккаунтов с SELECT ... FOR UPDATE, расчёт в Java и сохранение сущностей
+         */
+        ENTITY,
+        /**
+         * Два условных UPDATE без загрузки сущностей; достаточность средств проверяет сама БД
+         */
+        CONDITIONAL_UPDATE,
+        /**
+         * Загрузка аккаунтов без блокировки и сохранение с проверкой version;
+         * при конфликте перевод повторяется
+         */
+        OPTIMISTIC
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Оператор % из pg_trgm как функция HQL/Criteria trgm_match(a, b): строки похожи не меньше порога
+ * pg_trgm.similarity_threshold. Для оператора, в отличие от вызова similarity(), применим GIN-индекс
+ */
+public class TrigramFunctionContributor implements FunctionContributor {
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry().registerPattern("trgm_match", "(?1 % ?2)",
+                functionContributions.getTypeConfiguration().getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN));
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки поиска пользователей
+ *
+ * @param similarityThreshold минимальное сходство имени по триграммам (от 0 до 1) для нечёткого поиска
+ * @param cacheTtl            время жизни результатов поиска в кэше; изменения данных инвалидируют их
+ *                            сразу (см. UserSearchCache), TTL лишь удаляет записи старых поколений
+ */
+@ConfigurationProperties(prefix = "user.search")
+public record UserSearchProperties(
+        @DefaultValue("0.3") double similarityThreshold,
+        @DefaultValue("12h") Duration cacheTtl
+) {}
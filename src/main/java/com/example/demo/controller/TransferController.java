@@ -1,6 +1,11 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.BatchTransferRequestDTO;
 import com.example.demo.dto.TransferRequestDTO;
+import com.example.demo.dto.TransferResultDTO;
+import com.example.demo.dto.TransferStatusDTO;
+import com.example.demo.service.AsyncTransferService;
+import com.example.demo.service.TransferGroupCommitter;
 import com.example.demo.service.TransferService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -11,11 +16,18 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
 @Slf4j
 @RestController
 @RequestMapping("/api/transfer")
@@ -23,12 +35,15 @@ import org.springframework.web.bind.annotation.RestController;
 public class TransferController {
 
     private final TransferService service;
+    private final Optional<TransferGroupCommitter> groupCommitter;
+    private final AsyncTransferService asyncService;
 
     @Operation(summary = "Transfer money", description = "Transfer money from authenticated user to another user")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Transfer successful"),
             @ApiResponse(responseCode = "400", description = "Invalid transfer request or insufficient funds"),
-            @ApiResponse(responseCode = "403", description = "Access denied")
+            @ApiResponse(responseCode = "403", description = "Access denied"),
+            @ApiResponse(responseCode = "503", description = "Transfer queue is full")
     })
     @SecurityRequirement(name = "bearerAuth")
     @PostMapping
@@ -38,7 +53,60 @@ public class TransferController {
     ) {
         log.info("Initiating transfer from user {} to user {} with amount {}",
                 userId, transferRequestDTO.toUserId(), transferRequestDTO.amount());
-        service.transfer(userId, transferRequestDTO.toUserId(), transferRequestDTO.amount());
+        if (groupCommitter.isPresent()) {
+            groupCommitter.get().transfer(userId, transferRequestDTO.toUserId(), transferRequestDTO.amount());
+        } else {
+            service.transfer(userId, transferRequestDTO.toUserId(), transferRequestDTO.amount());
+        }
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Batch transfer money",
+            description = "Transfer money from authenticated user to many users in a single transaction")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Batch processed, result returned for every transfer"),
+            @ApiResponse(responseCode = "400", description = "Invalid batch"),
+            @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    @PostMapping("/batch")
+    public List<TransferResultDTO> transferBatch(
+            @Valid @RequestBody BatchTransferRequestDTO batchTransferRequestDTO,
+            @AuthenticationPrincipal Long userId
+    ) {
+        log.info("Initiating batch of {} transfers from user {}", batchTransferRequestDTO.transfers().size(), userId);
+        return service.transferBatch(userId, batchTransferRequestDTO.transfers());
+    }
+
+    @Operation(summary = "Submit transfer asynchronously",
+            description = "Validate the transfer, run it in the background and return its id for status polling")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Transfer accepted"),
+            @ApiResponse(responseCode = "400", description = "Invalid transfer request"),
+            @ApiResponse(responseCode = "403", description = "Access denied"),
+            @ApiResponse(responseCode = "503", description = "Too many pending transfers")
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    @PostMapping("/async")
+    public ResponseEntity<TransferStatusDTO> transferAsync(
+            @Valid @RequestBody TransferRequestDTO transferRequestDTO,
+            @AuthenticationPrincipal Long userId
+    ) {
+        log.info("Submitting async transfer from user {} to user {} with amount {}",
+                userId, transferRequestDTO.toUserId(), transferRequestDTO.amount());
+        TransferStatusDTO transfer = asyncService.submit(userId, transferRequestDTO.toUserId(), transferRequestDTO.amount());
+        return ResponseEntity.accepted().location(URI.create("/api/transfer/" + transfer.id())).body(transfer);
+    }
+
+    @Operation(summary = "Get transfer status", description = "Status of an asynchronous transfer of the authenticated user")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Transfer status: PENDING, COMPLETED or FAILED"),
+            @ApiResponse(responseCode = "400", description = "Transfer not found or expired"),
+            @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    @GetMapping("/{id}")
+    public TransferStatusDTO getTransferStatus(@PathVariable UUID id, @AuthenticationPrincipal Long userId) {
+        return asyncService.getStatus(id, userId);
+    }
+}
@@ -1,24 +1,34 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.EmailDTO;
+import com.example.demo.dto.ExportFormat;
+import com.example.demo.dto.NameMatch;
 import com.example.demo.dto.PhoneDTO;
 import com.example.demo.dto.UserDTO;
+import com.example.demo.dto.UserSliceDTO;
+import com.example.demo.service.UserExportService;
 import com.example.demo.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 @Slf4j
 @RestController
 @RequestMapping("/api/users")
@@ -26,8 +36,11 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
 
     private final UserService service;
+    private final UserExportService exportService;
 
-    @Operation(summary = "Search users with filters", description = "Search users by name, date of birth, phone, or email with pagination")
+    @Operation(summary = "Search users with filters",
+            description = "Search users by name, date of birth or its range (dd.MM.yyyy, bounds inclusive), phone, or email "
+                    + "with pagination; nameMatch=fuzzy finds similar names ignoring case and typos and orders them by similarity")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Users found"),
             @ApiResponse(responseCode = "400", description = "Invalid filter parameters")
@@ -37,15 +50,73 @@ public class UserController {
     public Page<UserDTO> searchUsers(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String dateOfBirth,
+            @RequestParam(required = false) String dateOfBirthFrom,
+            @RequestParam(required = false) String dateOfBirthTo,
             @RequestParam(required = false) String phone,
             @RequestParam(required = false) String email,
+            @RequestParam(defaultValue = "prefix") String nameMatch,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size
     ) {
-        log.info("Searching users with filters: name={}, dateOfBirth={}, phone={}, email={}, page={}, size={}",
-                name, dateOfBirth, phone, email, page, size);
+        log.info("Searching users with filters: name={}, nameMatch={}, dateOfBirth={}, dateOfBirthFrom={}, dateOfBirthTo={}, "
+                        + "phone={}, email={}, page={}, size={}",
+                name, nameMatch, dateOfBirth, dateOfBirthFrom, dateOfBirthTo, phone, email, page, size);
         Pageable pageable = PageRequest.of(page, size);
-        return service.searchUsers(name, dateOfBirth, phone, email, pageable);
+        return switch (NameMatch.parse(nameMatch)) {
+            case PREFIX -> service.searchUsers(name, dateOfBirth, dateOfBirthFrom, dateOfBirthTo, phone, email, pageable);
+            case FUZZY -> service.searchUsersBySimilarity(name, dateOfBirth, dateOfBirthFrom, dateOfBirthTo, phone, email, pageable);
+        };
+    }
+
+    @Operation(summary = "Search users with cursor pagination",
+            description = "Search users ordered by name with a cursor instead of page numbers; pass the returned next cursor as after to get the following page. Page size is 1 to 100")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Users found"),
+            @ApiResponse(responseCode = "400", description = "Invalid filter parameters, cursor or page size")
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    @GetMapping("/scroll")
+    public UserSliceDTO scrollUsers(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String dateOfBirth,
+            @RequestParam(required = false) String phone,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        log.info("Scrolling users with filters: name={}, dateOfBirth={}, phone={}, email={}, after={}, size={}",
+                name, dateOfBirth, phone, email, after, size);
+        return service.scrollUsers(name, dateOfBirth, phone, email, after, size);
+    }
+
+    @Operation(summary = "Export all users",
+            description = "Stream all users with their emails and phones ordered by id as NDJSON (one user per line) or CSV")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Users exported"),
+            @ApiResponse(responseCode = "400", description = "Unknown export format")
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    @GetMapping("/export")
+    public void exportUsers(@RequestParam(defaultValue = "ndjson") String format, HttpServletResponse response) throws IOException {
+        log.info("Exporting users as {}", format);
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        response.setContentType(exportFormat.contentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=users." + exportFormat.extension());
+        exportService.export(exportFormat, response.getOutputStream());
+    }
+
+    @Operation(summary = "Get users by IDs",
+            description = "Retrieve up to 100 users with their emails and phones in one request, in the order of ids; unknown ids are skipped")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Users found"),
+            @ApiResponse(responseCode = "400", description = "Too many or invalid ids")
+    })
+    @SecurityRequirement(name = "bearerAuth")
+    @GetMapping("/batch")
+    public List<UserDTO> getUsersByIds(@RequestParam List<Long> ids, @AuthenticationPrincipal Long userId) {
+        log.info("Fetching {} users by id by user {}", ids.size(), userId);
+        return service.getUsersByIds(ids);
     }
 
     @Operation(summary = "Get user by ID", description = "Retrieve user details by ID")
@@ -0,0 +1,13 @@
+package com.example.demo.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record BatchTransferRequestDTO(
+        @NotEmpty(message = "Transfers cannot be empty")
+        List<@Valid TransferRequestDTO> transfers
+) {}
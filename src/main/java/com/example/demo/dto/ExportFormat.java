@@ -0,0 +1,41 @@
+package com.example.demo.dto;
+
+import java.util.Locale;
+
+/**
+ * Формат выгрузки пользователей
+ */
+public enum ExportFormat {
+    /**
+     * Один JSON-объект UserDTO на строку
+     */
+    NDJSON("application/x-ndjson", "ndjson"),
+    /**
+     * CSV с заголовком; email и телефоны пользователя перечисляются через точку с запятой
+     */
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static ExportFormat parse(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown export format: " + value);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import java.util.Locale;
+
+/**
+ * Режим сравнения имени при поиске пользователей
+ */
+public enum NameMatch {
+    /**
+     * Имя начинается с заданной строки, с учётом регистра
+     */
+    PREFIX,
+    /**
+     * Имя похоже на заданную строку по триграммам; результаты упорядочены по убыванию сходства
+     */
+    FUZZY;
+
+    public static NameMatch parse(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown name match mode: " + value);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.demo.dto;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+
+@Builder
+public record TransferResultDTO(
+        Long toUserId,
+        BigDecimal amount,
+        TransferStatus status,
+        String message
+) {}
@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Builder
+public record TransferStatusDTO(
+        UUID id,
+        Long toUserId,
+        BigDecimal amount,
+        TransferStatus status,
+        String message
+) {}
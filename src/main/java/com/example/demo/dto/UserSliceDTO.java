@@ -0,0 +1,14 @@
+package com.example.demo.dto;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * Страница поиска пользователей без общего количества; next — курсор следующей страницы или null
+ */
+@Builder
+public record UserSliceDTO(
+        List<UserDTO> content,
+        String next
+) {}
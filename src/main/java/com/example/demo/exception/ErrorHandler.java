@@ -4,6 +4,7 @@ import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.MessageSourceResolvable;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.AuthenticationException;
@@ -17,6 +18,7 @@ import org.springframework.web.method.annotation.HandlerMethodValidationExceptio
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestControllerAdvice
@@ -84,6 +86,26 @@ public class ErrorHandler {
         return new ErrorResponse(ex.getMessage());
     }
 
+    /**
+     * Обработка конфликтов блокировок, не разрешившихся после повторов
+     */
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleConcurrencyFailureException(ConcurrencyFailureException ex) {
+        log.warn("Concurrency conflict: {}", ex.getMessage());
+        return new ErrorResponse("Account is busy, please retry");
+    }
+
+    /**
+     * Обработка переполнения очереди переводов
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleRejectedExecutionException(RejectedExecutionException ex) {
+        log.warn("Request rejected: {}", ex.getMessage());
+        return new ErrorResponse(ex.getMessage());
+    }
+
     /**
      * Обработка ошибок аутентификации
      */
@@ -18,12 +18,31 @@ public class Account {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    /**
+     * Основной баланс; у шардированного аккаунта часть средств лежит в слотах (account_balance_slots)
+     */
     @Column(nullable = false, precision = 19, scale = 2)
     private BigDecimal balance;
 
     @Column(name = "initial_deposit", nullable = false, precision = 19, scale = 2)
     private BigDecimal initialDeposit;
 
+    /**
+     * Количество слотов баланса, 0 — аккаунт не шардирован. Меняется только через AccountSlotService
+     */
+    @Column(name = "balance_slots", nullable = false, insertable = false, updatable = false)
+    private int balanceSlots;
+
+    /**
+     * Тик, на который посчитан баланс. Меняется только начислением процентов (см. AccrualService)
+     */
+    @Column(name = "last_accrued_tick", nullable = false, insertable = false, updatable = false)
+    private long lastAccruedTick;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @OneToOne
     @JoinColumn(name = "user_id", nullable = false, unique = true)
     @ToString.Exclude // Исключаем из toString во избежание циклических ссылок
@@ -0,0 +1,45 @@
+package com.example.demo.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+
+/**
+ * Дата рождения хранится в столбце DATE, а в сущности и API остаётся строкой dd.MM.yyyy.
+ * Параметры запросов по User.dateOfBirth тоже проходят через конвертер и сравниваются как даты
+ */
+@Converter
+public class DateOfBirthConverter implements AttributeConverter<String, LocalDate> {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("dd.MM.uuuu")
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    /**
+     * Разбор даты в формате dd.MM.yyyy; несуществующая дата, например 31.02.1990, тоже отклоняется
+     */
+    public static LocalDate parse(String value) {
+        try {
+            return LocalDate.parse(value, FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Date must be in format dd.MM.yyyy: " + value);
+        }
+    }
+
+    public static String format(LocalDate value) {
+        return value.format(FORMAT);
+    }
+
+    @Override
+    public LocalDate convertToDatabaseColumn(String attribute) {
+        return attribute == null ? null : parse(attribute);
+    }
+
+    @Override
+    public String convertToEntityAttribute(LocalDate dbData) {
+        return dbData == null ? null : format(dbData);
+    }
+}
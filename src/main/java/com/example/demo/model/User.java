@@ -25,6 +25,7 @@ public class User {
     private String name;
 
     @Column(name = "date_of_birth", nullable = false)
+    @Convert(converter = DateOfBirthConverter.class)
     @Pattern(regexp = "\\d{2}\\.\\d{2}\\.\\d{4}", message = "Date must be in format dd.MM.yyyy")
     private String dateOfBirth;
 
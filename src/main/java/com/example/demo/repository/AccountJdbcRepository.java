@@ -0,0 +1,156 @@
+package com.example.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Операции над accounts, которым не нужны сущности: блокировка множества строк
+ * одним запросом и пакетное (JDBC batch) изменение балансов. Каждое изменение
+ * увеличивает version, чтобы конкурирующие сохранения сущностей получили конфликт
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Блокирует аккаунты пользователей в порядке возрастания user_id и возвращает их балансы.
+     * Пользователи без аккаунта в результат не попадают
+     */
+    public Map<Long, BigDecimal> lockBalances(Collection<Long> userIds) {
+        Map<Long, BigDecimal> balances = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                "SELECT user_id, balance FROM accounts WHERE user_id = ANY(?) ORDER BY user_id FOR UPDATE",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", userIds.toArray())),
+                rs -> {
+                    balances.put(rs.getLong("user_id"), rs.getBigDecimal("balance"));
+                }
+        );
+        return balances;
+    }
+
+    /**
+     * Прибавляет к балансам указанные суммы (отрицательные — списание) одним JDBC batch
+     */
+    public void addToBalances(Map<Long, BigDecimal> deltas) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((userId, delta) -> args.add(new Object[]{delta, userId}));
+        jdbcTemplate.batchUpdate("UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE user_id = ?", args);
+    }
+
+    /**
+     * Устанавливает балансы одним JDBC batch
+     */
+    public void setBalances(Map<Long, BigDecimal> balances) {
+        List<Object[]> args = new ArrayList<>(balances.size());
+        balances.forEach((userId, balance) -> args.add(new Object[]{balance, userId}));
+        jdbcTemplate.batchUpdate("UPDATE accounts SET balance = ?, version = version + 1 WHERE user_id = ?", args);
+    }
+
+    /**
+     * Потоковое чтение всех аккаунтов курсором; вызывать внутри транзакции, иначе драйвер
+     * PostgreSQL загрузит весь результат в память
+     */
+    public void forEachAccount(int fetchSize, Consumer<AccountBalance> consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT user_id, balance, initial_deposit FROM accounts");
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rs -> {
+            consumer.accept(new AccountBalance(rs.getLong("user_id"), rs.getBigDecimal("balance"),
+                    rs.getBigDecimal("initial_deposit")));
+        });
+    }
+
+    /**
+     * Последний id следующего чанка из не более size ещё не достигших потолка аккаунтов после afterId;
+     * null, если таких аккаунтов больше нет. Читает только частичный индекс accounts_growing_idx
+     */
+    public Long nextChunkEnd(long afterId, int size) {
+        return jdbcTemplate.queryForObject(
+                "SELECT max(id) FROM (SELECT id FROM accounts WHERE id > ? AND NOT capped ORDER BY id LIMIT ?) chunk",
+                Long.class, afterId, size);
+    }
+
+    /**
+     * Блокирует аккаунты чанка, которым положено начисление за тик: ещё не получившие его
+     * и не достигшие потолка. Строки, заблокированные переводами, пропускаются (SKIP LOCKED)
+     */
+    public List<AccrualCandidate> lockDueForAccrual(long fromId, long toId, long tick) {
+        return jdbcTemplate.query("""
+                SELECT id, user_id, balance_slots FROM accounts
+                WHERE id BETWEEN ? AND ? AND last_accrued_tick < ? AND NOT capped
+                ORDER BY id
+                FOR UPDATE SKIP LOCKED
+                """, (rs, rowNum) -> new AccrualCandidate(rs.getLong("id"), rs.getLong("user_id"),
+                rs.getInt("balance_slots") > 0), fromId, toId, tick);
+    }
+
+    /**
+     * Начисление 10%, но не выше 207% от начального депозита, с отметкой тика;
+     * аккаунты, уже достигшие потолка, не затрагиваются
+     */
+    public int accrue(Collection<Long> ids, long tick) {
+        return jdbcTemplate.update("""
+                UPDATE accounts SET balance = LEAST(balance * 1.10, initial_deposit * 2.07),
+                                    last_accrued_tick = ?, version = version + 1
+                WHERE id = ANY(?) AND NOT capped
+                """, ps -> {
+            ps.setLong(1, tick);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+        });
+    }
+
+    /**
+     * Остались ли в чанке аккаунты без начисления за тик (например, пропущенные из-за блокировки)
+     */
+    public boolean hasDueForAccrual(long fromId, long toId, long tick) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM accounts
+                               WHERE id BETWEEN ? AND ? AND last_accrued_tick < ? AND NOT capped)
+                """, Boolean.class, fromId, toId, tick));
+    }
+
+    /**
+     * Блокирует аккаунты пользователей одним проходом в порядке возрастания user_id, как lockBalances,
+     * и возвращает их состояние начисления
+     */
+    public List<AccrualState> lockForAccrual(Collection<Long> userIds) {
+        return jdbcTemplate.query("""
+                SELECT user_id, balance, initial_deposit, last_accrued_tick, balance_slots FROM accounts
+                WHERE user_id = ANY(?)
+                ORDER BY user_id
+                FOR UPDATE
+                """, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", userIds.toArray())),
+                (rs, rowNum) -> new AccrualState(rs.getLong("user_id"), rs.getBigDecimal("balance"),
+                rs.getBigDecimal("initial_deposit"), rs.getLong("last_accrued_tick"), rs.getInt("balance_slots") > 0));
+    }
+
+    /**
+     * Записывает балансы с начисленными процентами и переносит отметку начисления на тик одним JDBC batch
+     */
+    public void setAccruedBalances(Map<Long, BigDecimal> balances, long tick) {
+        List<Object[]> args = new ArrayList<>(balances.size());
+        balances.forEach((userId, balance) -> args.add(new Object[]{balance, tick, userId}));
+        jdbcTemplate.batchUpdate(
+                "UPDATE accounts SET balance = ?, last_accrued_tick = ?, version = version + 1 WHERE user_id = ?", args);
+    }
+
+    public record AccountBalance(long userId, BigDecimal balance, BigDecimal initialDeposit) {}
+
+    public record AccrualCandidate(long id, long userId, boolean sharded) {}
+
+    public record AccrualState(long userId, BigDecimal balance, BigDecimal initialDeposit, long lastAccruedTick,
+                               boolean sharded) {}
+}
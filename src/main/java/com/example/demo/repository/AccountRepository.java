@@ -1,16 +1,48 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.Account;
-import io.lettuce.core.dynamic.annotation.Param;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findByUserId(Long userId);
+
+    boolean existsByUserId(Long userId);
+
+    /**
+     * Чтение аккаунта с блокировкой строки (SELECT ... FOR UPDATE)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.user.id = :userId")
+    Optional<Account> findByUserIdForUpdate(@Param("userId") Long userId);
+
+    /**
+     * Установка lock_timeout для текущей транзакции
+     */
+    @Query(value = "SELECT set_config('lock_timeout', :timeout, true)", nativeQuery = true)
+    String setLocalLockTimeout(@Param("timeout") String timeout);
+
+    /**
+     * Списание одним условным UPDATE: возвращает 0, если аккаунта нет или средств недостаточно
+     */
+    @Modifying
+    @Query(value = "UPDATE accounts SET balance = balance - :amount, version = version + 1 WHERE user_id = :userId AND balance >= :amount",
+            nativeQuery = true)
+    int debit(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Зачисление одним UPDATE: возвращает 0, если аккаунта нет
+     */
+    @Modifying
+    @Query(value = "UPDATE accounts SET balance = balance + :amount, version = version + 1 WHERE user_id = :userId", nativeQuery = true)
+    int credit(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
 }
@@ -0,0 +1,136 @@
+package com.example.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Слоты баланса шардированных аккаунтов (account_balance_slots). Зачисления на такой аккаунт
+ * распределяются по слотам, поэтому параллельные переводы не ждут блокировку одной строки.
+ * Полный баланс аккаунта — accounts.balance плюс сумма его слотов
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountSlotRepository {
+
+    private static final String DRAIN = """
+            WITH drained AS (
+                UPDATE account_balance_slots s SET balance = 0
+                FROM (SELECT s2.account_id, s2.slot, s2.balance
+                      FROM account_balance_slots s2 JOIN accounts a ON a.id = s2.account_id
+                      WHERE s2.balance > 0 %s
+                      ORDER BY s2.account_id, s2.slot
+                      FOR UPDATE OF s2 %s) old
+                WHERE s.account_id = old.account_id AND s.slot = old.slot
+                RETURNING old.account_id, old.balance
+            )
+            SELECT a.user_id, SUM(d.balance) AS drained
+            FROM drained d JOIN accounts a ON a.id = d.account_id
+            GROUP BY a.user_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Зачисление в случайный слот; возвращает false, если аккаунт не шардирован
+     */
+    public boolean creditRandomSlot(Long userId, BigDecimal amount) {
+        return jdbcTemplate.update("""
+                UPDATE account_balance_slots s SET balance = s.balance + ?
+                FROM accounts a
+                WHERE a.user_id = ? AND s.account_id = a.id AND s.slot = ? % NULLIF(a.balance_slots, 0)
+                """, amount, userId, ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE)) == 1;
+    }
+
+    /**
+     * Обнуляет слоты аккаунтов пользователей и возвращает снятые суммы по user_id.
+     * Вызывающий обязан в той же транзакции прибавить их к accounts.balance
+     */
+    public Map<Long, BigDecimal> drain(Collection<Long> userIds) {
+        return drain(userIds, "");
+    }
+
+    /**
+     * То же, что {@link #drain(Collection)}, но слоты, заблокированные другими транзакциями,
+     * пропускаются без ожидания (SKIP LOCKED); остались ли в них деньги, покажет {@link #withSlotBalance}
+     */
+    public Map<Long, BigDecimal> drainUnlocked(Collection<Long> userIds) {
+        return drain(userIds, "SKIP LOCKED");
+    }
+
+    /**
+     * Пользователи из userIds, в слотах которых есть зачисления
+     */
+    public Set<Long> withSlotBalance(Collection<Long> userIds) {
+        return slotBalances(userIds).keySet();
+    }
+
+    /**
+     * Суммы в слотах по user_id для пользователей из userIds, у которых она не нулевая
+     */
+    public Map<Long, BigDecimal> slotBalances(Collection<Long> userIds) {
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT a.user_id, SUM(s.balance) AS balance FROM account_balance_slots s JOIN accounts a ON a.id = s.account_id
+                WHERE s.balance > 0 AND a.user_id = ANY(?)
+                GROUP BY a.user_id
+                """, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", userIds.toArray())),
+                rs -> {
+                    balances.put(rs.getLong("user_id"), rs.getBigDecimal("balance"));
+                });
+        return balances;
+    }
+
+    /**
+     * То же, что {@link #drain(Collection)}, для всех шардированных аккаунтов
+     */
+    public Map<Long, BigDecimal> drainAll() {
+        Map<Long, BigDecimal> drained = new HashMap<>();
+        jdbcTemplate.query(DRAIN.formatted("", ""), rs -> {
+            drained.put(rs.getLong("user_id"), rs.getBigDecimal("drained"));
+        });
+        return drained;
+    }
+
+    private Map<Long, BigDecimal> drain(Collection<Long> userIds, String lockOption) {
+        Map<Long, BigDecimal> drained = new HashMap<>();
+        jdbcTemplate.query(DRAIN.formatted("AND a.user_id = ANY(?)", lockOption),
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", userIds.toArray())),
+                rs -> {
+                    drained.put(rs.getLong("user_id"), rs.getBigDecimal("drained"));
+                });
+        return drained;
+    }
+
+    /**
+     * Пересоздаёт слоты аккаунта; слоты должны быть предварительно опустошены
+     */
+    public void resize(Long userId, int slots) {
+        jdbcTemplate.update("DELETE FROM account_balance_slots WHERE account_id = (SELECT id FROM accounts WHERE user_id = ?)",
+                userId);
+        jdbcTemplate.update("""
+                INSERT INTO account_balance_slots (account_id, slot)
+                SELECT a.id, g.slot FROM accounts a CROSS JOIN generate_series(0, ? - 1) AS g(slot)
+                WHERE a.user_id = ?
+                """, slots, userId);
+        jdbcTemplate.update("UPDATE accounts SET balance_slots = ?, version = version + 1 WHERE user_id = ?",
+                slots, userId);
+    }
+
+    /**
+     * Сумма в слотах аккаунта
+     */
+    public BigDecimal slotBalance(Long userId) {
+        return jdbcTemplate.queryForObject("""
+                SELECT COALESCE(SUM(s.balance), 0) FROM account_balance_slots s
+                JOIN accounts a ON a.id = s.account_id WHERE a.user_id = ?
+                """, BigDecimal.class, userId);
+    }
+}
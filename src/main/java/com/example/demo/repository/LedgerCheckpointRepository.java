@@ -0,0 +1,25 @@
+package com.example.demo.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+@RequiredArgsConstructor
+public class LedgerCheckpointRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public long lastSequence() {
+        Long sequence = jdbcTemplate.queryForObject("SELECT last_sequence FROM ledger_checkpoint WHERE id = 1", Long.class);
+        return sequence != null ? sequence : 0;
+    }
+
+    /**
+     * Сдвигает checkpoint вперёд; возвращает false, если сохранённый номер не меньше переданного
+     */
+    public boolean advance(long sequence) {
+        return jdbcTemplate.update("UPDATE ledger_checkpoint SET last_sequence = ? WHERE id = 1 AND last_sequence < ?",
+                sequence, sequence) == 1;
+    }
+}
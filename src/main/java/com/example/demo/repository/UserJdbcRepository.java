@@ -0,0 +1,84 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.UserDTO;
+import com.example.demo.model.DateOfBirthConverter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Чтение пользователей без сущностей для выгрузок и пакетных запросов
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Потоковое чтение всех пользователей с email и телефонами в порядке id курсором; вызывать внутри
+     * транзакции, иначе драйвер PostgreSQL загрузит весь результат в память. Контакты агрегируются
+     * в массивы по индексам email_data_user_id_idx и phone_data_user_id_idx и соединяются с users
+     * слиянием: так в разы быстрее, чем двумя подзапросами на каждого пользователя. Порядок контактов
+     * внутри массива не определён
+     */
+    public void forEachUser(int fetchSize, Consumer<UserDTO> consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                    SELECT u.id, u.name, u.date_of_birth, e.emails, p.phones
+                    FROM users u
+                    LEFT JOIN (SELECT user_id, array_agg(email) AS emails FROM email_data GROUP BY user_id) e ON e.user_id = u.id
+                    LEFT JOIN (SELECT user_id, array_agg(phone) AS phones FROM phone_data GROUP BY user_id) p ON p.user_id = u.id
+                    ORDER BY u.id
+                    """);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rs -> {
+            consumer.accept(user(rs));
+        });
+    }
+
+    /**
+     * Пользователи с email и телефонами одним запросом; контакты — в порядке добавления, порядок
+     * пользователей не определён, неизвестные id пропускаются
+     */
+    public List<UserDTO> findAllById(Collection<Long> ids) {
+        return jdbcTemplate.query("""
+                        SELECT u.id, u.name, u.date_of_birth,
+                               ARRAY(SELECT email FROM email_data WHERE user_id = u.id ORDER BY id) AS emails,
+                               ARRAY(SELECT phone FROM phone_data WHERE user_id = u.id ORDER BY id) AS phones
+                        FROM users u
+                        WHERE u.id = ANY(?)
+                        """,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                (rs, rowNum) -> user(rs));
+    }
+
+    private static UserDTO user(ResultSet rs) throws SQLException {
+        return new UserDTO(rs.getLong("id"), rs.getString("name"),
+                DateOfBirthConverter.format(rs.getObject("date_of_birth", LocalDate.class)),
+                strings(rs, "emails"), strings(rs, "phones"));
+    }
+
+    private static List<String> strings(ResultSet rs, String column) throws SQLException {
+        Array array = rs.getArray(column);
+        if (array == null) {
+            return List.of();
+        }
+        try {
+            return Arrays.asList((String[]) array.getArray());
+        } finally {
+            array.free();
+        }
+    }
+}
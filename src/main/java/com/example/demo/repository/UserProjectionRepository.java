@@ -0,0 +1,135 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.UserDTO;
+import com.example.demo.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+/**
+ * Чтение пользователей сразу в UserDTO без управляемых сущностей. Страница собирается за фиксированное
+ * число запросов, не зависящее от её размера: строки пользователей, затем email и телефоны всей
+ * страницы двумя запросами с IN (плюс COUNT, если без него общее количество не известно)
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserProjectionRepository {
+
+    private final EntityManager entityManager;
+
+    public Optional<UserDTO> findById(Long id) {
+        Specification<User> byId = (root, query, cb) -> cb.equal(root.get("id"), id);
+        return findAll(byId, Sort.unsorted(), 0, 1).stream().findFirst();
+    }
+
+    public Page<UserDTO> findAll(Specification<User> spec, Pageable pageable) {
+        List<UserDTO> content = pageable.isPaged()
+                ? findAll(spec, pageable.getSort(), pageable.getOffset(), pageable.getPageSize())
+                : findAll(spec, pageable.getSort(), 0, Integer.MAX_VALUE);
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(spec));
+    }
+
+    /**
+     * Первые limit пользователей в порядке sort, начиная с offset
+     */
+    public List<UserDTO> findAll(Specification<User> spec, Sort sort, long offset, int limit) {
+        return select(spec, (root, cb) -> QueryUtils.toOrders(sort, root, cb), offset, limit);
+    }
+
+    /**
+     * Пользователи с именем, похожим на name не меньше threshold, по убыванию сходства. Порог
+     * оператора % задаётся на время транзакции, поэтому метод выполняется в своей транзакции
+     */
+    @Transactional(readOnly = true)
+    public Page<UserDTO> findSimilar(Specification<User> spec, String name, double threshold, Pageable pageable) {
+        entityManager.createNativeQuery("SELECT set_config('pg_trgm.similarity_threshold', :threshold, true)")
+                .setParameter("threshold", String.valueOf(threshold))
+                .getSingleResult();
+        Specification<User> similar = spec.and(UserSpecifications.nameSimilarTo(name));
+        List<UserDTO> content = select(similar, (root, cb) -> List.of(
+                        cb.desc(cb.function("similarity", Double.class, root.get("name"), cb.literal(name))),
+                        cb.asc(root.get("id"))),
+                pageable.isPaged() ? pageable.getOffset() : 0,
+                pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE);
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(similar));
+    }
+
+    public long count(Specification<User> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<User> root = query.from(User.class);
+        query.select(cb.count(root));
+        where(query, spec.toPredicate(root, query, cb));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private List<UserDTO> select(Specification<User> spec, BiFunction<Root<User>, CriteriaBuilder, List<Order>> orders,
+                                 long offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        query.multiselect(root.get("id"), root.get("name"), root.get("dateOfBirth"));
+        where(query, spec.toPredicate(root, query, cb));
+        query.orderBy(orders.apply(root, cb));
+        List<Tuple> rows = entityManager.createQuery(query)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limit)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> ids = rows.stream().map(row -> row.get(0, Long.class)).toList();
+        Map<Long, List<String>> emails = contacts("SELECT e.user.id, e.email FROM EmailData e WHERE e.user.id IN :ids ORDER BY e.id", ids);
+        Map<Long, List<String>> phones = contacts("SELECT p.user.id, p.phone FROM Phone p WHERE p.user.id IN :ids ORDER BY p.id", ids);
+        return rows.stream()
+                .map(row -> {
+                    Long id = row.get(0, Long.class);
+                    return new UserDTO(id, row.get(1, String.class), row.get(2, String.class),
+                            emails.getOrDefault(id, List.of()), phones.getOrDefault(id, List.of()));
+                })
+                .toList();
+    }
+
+    /**
+     * Значения контактов (email или телефонов), сгруппированные по id пользователя
+     */
+    private Map<Long, List<String>> contacts(String jpql, Collection<Long> userIds) {
+        Map<Long, List<String>> contacts = new HashMap<>();
+        entityManager.createQuery(jpql, Object[].class)
+                .setParameter("ids", userIds)
+                .getResultList()
+                .forEach(row -> contacts.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]));
+        return contacts;
+    }
+
+    /**
+     * Пустая спецификация возвращает null вместо условия
+     */
+    private static void where(CriteriaQuery<?> query, Predicate predicate) {
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.DateOfBirthConverter;
+import com.example.demo.model.EmailData;
+import com.example.demo.model.Phone;
+import com.example.demo.model.User;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Условия поиска пользователей. Каждое условие рассчитано на свой индекс (V9__user_search_indexes.sql),
+ * незаданные фильтры в запрос не попадают
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    /**
+     * Поиск по любому набору фильтров; null означает «фильтр не задан»
+     */
+    public static Specification<User> search(String name, String dateOfBirth, String phone, String email) {
+        Specification<User> spec = Specification.where(null);
+        if (name != null && !name.isEmpty()) {
+            spec = spec.and(nameStartsWith(name));
+        }
+        if (dateOfBirth != null) {
+            spec = spec.and(bornOn(dateOfBirth));
+        }
+        if (phone != null) {
+            spec = spec.and(hasPhone(phone));
+        }
+        if (email != null) {
+            spec = spec.and(hasEmail(email));
+        }
+        return spec;
+    }
+
+    /**
+     * Имя начинается с префикса; спецсимволы LIKE в префиксе экранируются
+     */
+    public static Specification<User> nameStartsWith(String prefix) {
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.like(root.get("name"), pattern, '\\');
+    }
+
+    /**
+     * Имя похоже на строку не меньше порога pg_trgm.similarity_threshold (оператор %, индекс users_name_trgm_idx)
+     */
+    public static Specification<User> nameSimilarTo(String name) {
+        return (root, query, cb) -> cb.isTrue(cb.function("trgm_match", Boolean.class, root.get("name"), cb.literal(name)));
+    }
+
+    public static Specification<User> bornOn(String dateOfBirth) {
+        DateOfBirthConverter.parse(dateOfBirth);
+        return (root, query, cb) -> cb.equal(root.get("dateOfBirth"), dateOfBirth);
+    }
+
+    /**
+     * Дата рождения в диапазоне [from, to] (диапазон по индексу users_date_of_birth_idx);
+     * null означает, что граница не задана
+     */
+    public static Specification<User> bornBetween(String from, String to) {
+        Specification<User> spec = Specification.where(null);
+        if (from != null) {
+            DateOfBirthConverter.parse(from);
+            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("dateOfBirth"), from));
+        }
+        if (to != null) {
+            DateOfBirthConverter.parse(to);
+            spec = spec.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get("dateOfBirth"), to));
+        }
+        return spec;
+    }
+
+    /**
+     * Пользователи строго после (name, id) в порядке сортировки по имени и id. Условие name >= :name
+     * задаёт начало диапазона индекса users_name_id_idx, остальное отсекает строки с тем же именем
+     */
+    public static Specification<User> after(String name, Long id) {
+        return (root, query, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(root.get("name"), name),
+                cb.or(cb.greaterThan(root.get("name"), name), cb.greaterThan(root.get("id"), id)));
+    }
+
+    /**
+     * Подзапрос вместо join: пользователь попадает в результат один раз, и страницы считаются без DISTINCT
+     */
+    public static Specification<User> hasPhone(String phone) {
+        return (root, query, cb) -> {
+            Subquery<Long> owners = query.subquery(Long.class);
+            Root<Phone> phones = owners.from(Phone.class);
+            owners.select(phones.get("user").get("id")).where(cb.equal(phones.get("phone"), phone));
+            return root.get("id").in(owners);
+        };
+    }
+
+    public static Specification<User> hasEmail(String email) {
+        return (root, query, cb) -> {
+            Subquery<Long> owners = query.subquery(Long.class);
+            Root<EmailData> emails = owners.from(EmailData.class);
+            owners.select(emails.get("user").get("id")).where(cb.equal(emails.get("email"), email));
+            return root.get("id").in(owners);
+        };
+    }
+}
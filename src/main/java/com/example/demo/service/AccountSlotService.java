@@ -0,0 +1,81 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Account;
+import com.example.demo.repository.AccountJdbcRepository;
+import com.example.demo.repository.AccountRepository;
+import com.example.demo.repository.AccountSlotRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Администрирование шардированных аккаунтов: включение, изменение количества слотов и отключение.
+ * В профиле in-memory-ledger балансы принадлежат {@link InMemoryTransferEngine}: слоты не используются,
+ * а баланс читается у секвенсора, потому что accounts отстаёт от него до следующего сброса
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccountSlotService {
+
+    public static final int MAX_SLOTS = 64;
+
+    private final AccountRepository accountRepository;
+    private final AccountJdbcRepository jdbcRepository;
+    private final AccountSlotRepository slotRepository;
+    private final AccrualService accrualService;
+    private final Optional<InMemoryTransferEngine> inMemoryEngine;
+
+    /**
+     * Состояние шардирования аккаунта
+     *
+     * @param slots       количество слотов, 0 — аккаунт не шардирован
+     * @param balance     полный баланс
+     * @param slotBalance часть баланса, лежащая в слотах
+     */
+    public record SlotInfo(Long userId, int slots, BigDecimal balance, BigDecimal slotBalance) {}
+
+    @Transactional
+    public SlotInfo getSlots(Long userId) {
+        Account account = accountRepository.findByUserId(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Account not found for user " + userId));
+        BigDecimal slotBalance = slotRepository.slotBalance(userId);
+        BigDecimal balance = inMemoryEngine.isPresent()
+                ? inMemoryEngine.get().getBalance(userId).orElseThrow(
+                        () -> new IllegalArgumentException("Account not found for user " + userId))
+                : accrualService.effectiveBalance(account, slotBalance);
+        return new SlotInfo(userId, account.getBalanceSlots(), balance, slotBalance);
+    }
+
+    /**
+     * Задаёт количество слотов аккаунта. Деньги из старых слотов переносятся в основной баланс,
+     * поэтому полный баланс не меняется. В профиле in-memory-ledger недоступно: перенос в accounts
+     * затёрся бы следующим сбросом балансов секвенсора
+     */
+    @Transactional
+    public SlotInfo setSlots(Long userId, int slots) {
+        if (slots < 0 || slots > MAX_SLOTS) {
+            throw new IllegalArgumentException("Slot count must be between 0 and " + MAX_SLOTS);
+        }
+        if (inMemoryEngine.isPresent()) {
+            throw new IllegalStateException("Balance slots are not used by the in-memory ledger");
+        }
+        if (jdbcRepository.lockBalances(List.of(userId)).isEmpty()) {
+            throw new IllegalArgumentException("Account not found for user " + userId);
+        }
+        accrualService.materialize(List.of(userId));
+        Map<Long, BigDecimal> drained = slotRepository.drain(List.of(userId));
+        if (!drained.isEmpty()) {
+            jdbcRepository.addToBalances(drained);
+        }
+        slotRepository.resize(userId, slots);
+        log.info("Account of user {} now has {} balance slots", userId, slots);
+        return getSlots(userId);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.service;
+
+import com.example.demo.config.BalanceSchedulerProperties;
+import com.example.demo.config.BalanceSchedulerProperties.Mode;
+import com.example.demo.model.Account;
+import com.example.demo.repository.AccountJdbcRepository;
+import com.example.demo.repository.AccountJdbcRepository.AccrualState;
+import com.example.demo.repository.AccountSlotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Правило начисления процентов: 10% за тик, но не более 207% от начального депозита.
+ * В режиме lazy баланс в таблице посчитан на тик last_accrued_tick, а проценты за прошедшие
+ * с тех пор тики добавляются при чтении и записываются перед изменением баланса переводом.
+ * Слоты шардированного аккаунта при записи процентов сливаются в основной баланс, как перед
+ * периодическим начислением, поэтому потолок применяется к полному балансу в обоих режимах
+ */
+@Service
+@Slf4j
+public class AccrualService {
+
+    /**
+     * Период начисления; номер тика — количество полных периодов с начала эпохи
+     */
+    public static final Duration PERIOD = Duration.ofSeconds(30);
+
+    private static final BigDecimal RATE = new BigDecimal("1.10");
+    private static final BigDecimal CAP = new BigDecimal("2.07");
+
+    private final AccountJdbcRepository jdbcRepository;
+    private final AccountSlotRepository slotRepository;
+    private final boolean lazy;
+
+    public AccrualService(AccountJdbcRepository jdbcRepository, AccountSlotRepository slotRepository,
+                          BalanceSchedulerProperties properties) {
+        this.jdbcRepository = jdbcRepository;
+        this.slotRepository = slotRepository;
+        this.lazy = properties.enabled() && properties.mode() == Mode.LAZY;
+    }
+
+    public static long currentTick() {
+        return System.currentTimeMillis() / PERIOD.toMillis();
+    }
+
+    /**
+     * Баланс после ticks запусков периодического начисления. Каждый запуск округляет баланс
+     * до копеек, как столбец DECIMAL(19, 2), поэтому формула min(balance * 1.1^ticks, cap)
+     * расходилась бы с ним на копейки; вместо неё тики применяются по одному, пока баланс
+     * не упрётся в потолок или не перестанет меняться, то есть не более нескольких сотен шагов
+     */
+    public static BigDecimal accrue(BigDecimal balance, BigDecimal initialDeposit, long ticks) {
+        return accrue(balance, initialDeposit, ticks, BigDecimal.ZERO);
+    }
+
+    /**
+     * То же, когда часть баланса (outside) лежит вне начисления, например в заблокированных слотах:
+     * она не растёт, но учитывается в потолке
+     */
+    static BigDecimal accrue(BigDecimal balance, BigDecimal initialDeposit, long ticks, BigDecimal outside) {
+        BigDecimal cap = initialDeposit.multiply(CAP).subtract(outside);
+        BigDecimal roundedCap = cap.setScale(2, RoundingMode.HALF_UP);
+        for (long i = 0; i < ticks && balance.compareTo(roundedCap) < 0; i++) {
+            BigDecimal next = balance.multiply(RATE).min(cap).setScale(2, RoundingMode.HALF_UP);
+            if (next.compareTo(balance) == 0) {
+                break;
+            }
+            balance = next;
+        }
+        return balance;
+    }
+
+    /**
+     * Полный баланс аккаунта (основной плюс slotBalance в слотах) с учётом ещё не записанных процентов
+     */
+    public BigDecimal effectiveBalance(Account account, BigDecimal slotBalance) {
+        BigDecimal balance = account.getBalance().add(slotBalance);
+        if (!lazy) {
+            return balance;
+        }
+        return accrue(balance, account.getInitialDeposit(), currentTick() - account.getLastAccruedTick());
+    }
+
+    /**
+     * Записывает в таблицу проценты, накопленные аккаунтами пользователей к текущему тику.
+     * Вызывается в транзакции перед изменением балансов. Блокируются все аккаунты userIds, а не только
+     * отстающие, одним проходом в порядке возрастания user_id: иначе отстающие и остальные
+     * (следующим запросом вызывающего) блокировались бы двумя проходами, и два перевода одной пары
+     * на границе тика могли бы захватить по строке и ждать друг друга
+     */
+    public void materialize(Collection<Long> userIds) {
+        if (!lazy) {
+            return;
+        }
+        long tick = currentTick();
+        List<AccrualState> behind = jdbcRepository.lockForAccrual(userIds).stream()
+                .filter(state -> state.lastAccruedTick() < tick)
+                .toList();
+        if (behind.isEmpty()) {
+            return;
+        }
+        // Слоты блокируются без ожидания, как в BalanceScheduler; деньги в занятых слотах
+        // в этот раз не растут, но входят в потолок
+        List<Long> sharded = behind.stream().filter(AccrualState::sharded).map(AccrualState::userId).toList();
+        Map<Long, BigDecimal> drained = Map.of();
+        Map<Long, BigDecimal> undrained = Map.of();
+        if (!sharded.isEmpty()) {
+            drained = slotRepository.drainUnlocked(sharded);
+            undrained = slotRepository.slotBalances(sharded);
+        }
+        Map<Long, BigDecimal> balances = new TreeMap<>();
+        for (AccrualState state : behind) {
+            BigDecimal balance = state.balance().add(drained.getOrDefault(state.userId(), BigDecimal.ZERO));
+            balances.put(state.userId(), accrue(balance, state.initialDeposit(), tick - state.lastAccruedTick(),
+                    undrained.getOrDefault(state.userId(), BigDecimal.ZERO)));
+        }
+        // Отметка переносится и у аккаунтов на потолке: иначе после списания они получили бы проценты за прошлые тики
+        jdbcRepository.setAccruedBalances(balances, tick);
+        log.debug("Materialized interest of {} accounts up to tick {}", balances.size(), tick);
+    }
+}
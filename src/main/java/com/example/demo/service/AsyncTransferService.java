@@ -0,0 +1,149 @@
+package com.example.demo.service;
+
+import com.example.demo.config.AsyncTransferProperties;
+import com.example.demo.dto.TransferStatus;
+import com.example.demo.dto.TransferStatusDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Асинхронные переводы: запрос проверяется сразу, а сам перевод выполняется на виртуальном потоке,
+ * поэтому поток Tomcat не ждёт блокировок строк. Результаты хранятся в памяти ограниченное время
+ * и в ограниченном количестве; видеть результат может только отправитель
+ */
+@Service
+@Slf4j
+public class AsyncTransferService {
+
+    private final TransferService transferService;
+    private final Optional<TransferGroupCommitter> groupCommitter;
+    private final AsyncTransferProperties properties;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore inFlight;
+    // Порядок вставки совпадает с порядком истечения срока, поэтому вытесняются записи из головы
+    private final LinkedHashMap<UUID, AsyncTransfer> transfers = new LinkedHashMap<>();
+
+    public AsyncTransferService(TransferService transferService, Optional<TransferGroupCommitter> groupCommitter,
+                                AsyncTransferProperties properties) {
+        this.transferService = transferService;
+        this.groupCommitter = groupCommitter;
+        this.properties = properties;
+        this.inFlight = new Semaphore(properties.maxInFlight());
+    }
+
+    /**
+     * Принимает перевод к выполнению и возвращает его id
+     */
+    public TransferStatusDTO submit(Long fromUserId, Long toUserId, BigDecimal amount) {
+        transferService.validate(fromUserId, toUserId, amount);
+        if (!inFlight.tryAcquire()) {
+            throw new RejectedExecutionException("Too many pending transfers");
+        }
+        AsyncTransfer transfer = new AsyncTransfer(UUID.randomUUID(), fromUserId, toUserId, amount,
+                TransferStatus.PENDING, null, System.nanoTime());
+        store(transfer);
+        try {
+            executor.execute(() -> run(transfer));
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            update(transfer.withResult(TransferStatus.FAILED, "Transfer service is shutting down"));
+            throw e;
+        }
+        log.info("Accepted async transfer {} of {} from user {} to user {}", transfer.id(), amount, fromUserId, toUserId);
+        return transfer.toDto();
+    }
+
+    /**
+     * Состояние перевода; чужие, неизвестные и устаревшие переводы не находятся
+     */
+    public TransferStatusDTO getStatus(UUID id, Long userId) {
+        AsyncTransfer transfer;
+        synchronized (transfers) {
+            evictExpired();
+            transfer = transfers.get(id);
+        }
+        if (transfer == null || !transfer.fromUserId().equals(userId)) {
+            throw new IllegalArgumentException("Transfer not found with id: " + id);
+        }
+        return transfer.toDto();
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.close();
+    }
+
+    private void run(AsyncTransfer transfer) {
+        try {
+            if (groupCommitter.isPresent()) {
+                groupCommitter.get().transfer(transfer.fromUserId(), transfer.toUserId(), transfer.amount());
+            } else {
+                transferService.transfer(transfer.fromUserId(), transfer.toUserId(), transfer.amount());
+            }
+            update(transfer.withResult(TransferStatus.COMPLETED, null));
+        } catch (IllegalArgumentException | IllegalStateException | RejectedExecutionException e) {
+            update(transfer.withResult(TransferStatus.FAILED, e.getMessage()));
+        } catch (ConcurrencyFailureException e) {
+            update(transfer.withResult(TransferStatus.FAILED, "Account is busy, please retry"));
+        } catch (RuntimeException e) {
+            log.error("Async transfer {} failed", transfer.id(), e);
+            update(transfer.withResult(TransferStatus.FAILED, "An unexpected error occurred"));
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private void store(AsyncTransfer transfer) {
+        synchronized (transfers) {
+            evictExpired();
+            while (transfers.size() >= properties.maxEntries()) {
+                Iterator<AsyncTransfer> eldest = transfers.values().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+            transfers.put(transfer.id(), transfer);
+        }
+    }
+
+    /**
+     * Обновляет результат, если запись ещё не вытеснена
+     */
+    private void update(AsyncTransfer transfer) {
+        synchronized (transfers) {
+            transfers.replace(transfer.id(), transfer);
+        }
+    }
+
+    private void evictExpired() {
+        long expiredBefore = System.nanoTime() - properties.retention().toNanos();
+        Iterator<Map.Entry<UUID, AsyncTransfer>> iterator = transfers.entrySet().iterator();
+        while (iterator.hasNext() && iterator.next().getValue().acceptedAt() - expiredBefore < 0) {
+            iterator.remove();
+        }
+    }
+
+    private record AsyncTransfer(UUID id, Long fromUserId, Long toUserId, BigDecimal amount,
+                                 TransferStatus status, String message, long acceptedAt) {
+
+        AsyncTransfer withResult(TransferStatus status, String message) {
+            return new AsyncTransfer(id, fromUserId, toUserId, amount, status, message, acceptedAt);
+        }
+
+        TransferStatusDTO toDto() {
+            return new TransferStatusDTO(id, toUserId, amount, status, message);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.service;
 
+import com.example.demo.config.AdminProperties;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.util.JwtUtil;
@@ -8,6 +9,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -15,6 +18,7 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
+    private final AdminProperties adminProperties;
 
     public String login(String email, String phone, String password) {
         User user = null;
@@ -28,6 +32,7 @@ public class AuthService {
         if (user == null || !passwordEncoder.matches(password, user.getPassword())) {
             throw new IllegalArgumentException("Invalid password");
         }
-        return jwtUtil.generateToken(user.getId());
+        List<String> roles = adminProperties.userIds().contains(user.getId()) ? List.of("ADMIN") : List.of();
+        return jwtUtil.generateToken(user.getId(), roles);
     }
 }
\ No newline at end of file
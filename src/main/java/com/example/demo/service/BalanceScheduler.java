@@ -1,44 +1,194 @@
 package com.example.demo.service;
 
-import com.example.demo.model.Account;
-import com.example.demo.repository.AccountRepository;
-import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
+import com.example.demo.config.BalanceSchedulerProperties;
+import com.example.demo.repository.AccountJdbcRepository;
+import com.example.demo.repository.AccountJdbcRepository.AccrualCandidate;
+import com.example.demo.repository.AccountSlotRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Начисление процентов. Аккаунты обрабатываются чанками по диапазонам id, каждый чанк —
+ * в своей короткой транзакции, несколько чанков параллельно. Строки, заблокированные
+ * переводами, пропускаются и добираются следующими проходами. Номер последнего начисленного
+ * тика хранится в самом аккаунте, поэтому повторный или параллельный запуск не начислит
+ * один тик дважды. В режиме lazy планировщик не создаётся, проценты считает {@link AccrualService}
+ */
 @Service
-@RequiredArgsConstructor
 @EnableScheduling
+@ConditionalOnExpression("${balance.scheduler.enabled:true} and '${balance.scheduler.mode:periodic}'.equalsIgnoreCase('periodic')")
 @Slf4j
 public class BalanceScheduler {
-    private final AccountRepository repository;
+
+    private final AccountJdbcRepository jdbcRepository;
+    private final AccountSlotRepository slotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceSchedulerProperties properties;
+    private final SchedulerLeaderElection leaderElection;
+    private final ExecutorService workers;
+    private volatile Long lastTick;
+
+    public BalanceScheduler(AccountJdbcRepository jdbcRepository, AccountSlotRepository slotRepository,
+                            TransactionTemplate transactionTemplate, BalanceSchedulerProperties properties,
+                            SchedulerLeaderElection leaderElection) {
+        this.jdbcRepository = jdbcRepository;
+        this.slotRepository = slotRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.leaderElection = leaderElection;
+        this.workers = Executors.newFixedThreadPool(properties.workers(),
+                Thread.ofPlatform().name("balance-accrual-", 0).daemon().factory());
+    }
+
+    /**
+     * Начисление 10% на баланс каждые 30 секунд, но не более 207% от начального депозита.
+     * Запуски выровнены по границам тиков; при нескольких узлах начисляет только лидер.
+     * Возвращает количество изменённых аккаунтов
+     */
+    @Scheduled(cron = "0/30 * * * * *")
+    public int increaseBalances() {
+        if (!leaderElection.isLeader()) {
+            log.debug("Node {} is not the scheduler leader, skipping balance increase", leaderElection.nodeId());
+            return 0;
+        }
+        long tick = AccrualService.currentTick();
+        int updated = increaseBalances(tick);
+        lastTick = tick;
+        return updated;
+    }
+
+    /**
+     * Последний тик, начисленный этим узлом; null, если узел ещё не начислял
+     */
+    public Long lastTick() {
+        return lastTick;
+    }
+
+    int increaseBalances(long tick) {
+        log.info("Starting balance increase process for tick {}", tick);
+        long started = System.nanoTime();
+
+        List<Chunk> chunks = chunks();
+        int updated = 0;
+        for (int pass = 1; !chunks.isEmpty(); pass++) {
+            List<Future<ChunkResult>> futures = chunks.stream()
+                    .map(chunk -> workers.submit(() -> accrue(chunk, tick)))
+                    .toList();
+            List<Chunk> pending = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                ChunkResult result = await(futures.get(i), chunks.get(i));
+                updated += result.updated();
+                if (result.pending()) {
+                    pending.add(chunks.get(i));
+                }
+            }
+            chunks = pending;
+            if (!chunks.isEmpty()) {
+                if (pass >= properties.maxPasses()) {
+                    log.warn("{} chunks still have accounts locked by transfers after {} passes, skipping them for tick {}",
+                            chunks.size(), pass, tick);
+                    break;
+                }
+                log.debug("{} chunks have accounts locked by transfers, retrying", chunks.size());
+                pause();
+            }
+        }
+
+        log.info("Balance increase process completed: {} accounts updated in {} ms",
+                updated, (System.nanoTime() - started) / 1_000_000);
+        return updated;
+    }
+
+    @PreDestroy
+    void stop() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Разбиение на диапазоны id по chunk-size ещё не достигших потолка аккаунтов (keyset-пагинация
+     * по частичному индексу), поэтому стоимость запуска зависит только от количества растущих аккаунтов
+     */
+    private List<Chunk> chunks() {
+        List<Chunk> chunks = new ArrayList<>();
+        long from = 0;
+        Long to;
+        while ((to = jdbcRepository.nextChunkEnd(from, properties.chunkSize())) != null) {
+            chunks.add(new Chunk(from + 1, to));
+            from = to;
+        }
+        return chunks;
+    }
 
     /**
-     * Начисление 10% на баланс каждые 30 секунд, но не более 207% от начального депозита
+     * Начисление по одному чанку в отдельной транзакции. Слоты шардированных аккаунтов
+     * сначала сливаются в основной баланс, чтобы ограничение применялось к полному балансу.
+     * Здесь строки берутся в порядке аккаунт → слот, а перевод зачисляет в слот и затем может
+     * заблокировать аккаунт, то есть в обратном порядке. Поэтому и аккаунты, и слоты блокируются
+     * без ожидания (SKIP LOCKED): аккаунт, в заблокированном слоте которого остались деньги,
+     * пропускается до следующего прохода, и взаимной блокировки с переводом не возникает
      */
-    @Scheduled(fixedRate = 30000)
-    @Transactional
-    public void increaseBalances() {
-        log.info("Starting balance increase process");
-        List<Account> accounts = repository.findAll();
-        for (Account account : accounts) {
-            BigDecimal maxBalance = account.getInitialDeposit().multiply(BigDecimal.valueOf(2.07));
-            BigDecimal newBalance = account.getBalance().multiply(BigDecimal.valueOf(1.10));
-
-            if (newBalance.compareTo(maxBalance) > 0) {
-                newBalance = maxBalance;
+    private ChunkResult accrue(Chunk chunk, long tick) {
+        return transactionTemplate.execute(status -> {
+            List<AccrualCandidate> due = jdbcRepository.lockDueForAccrual(chunk.fromId(), chunk.toId(), tick);
+            int updated = 0;
+            if (!due.isEmpty()) {
+                List<Long> sharded = due.stream().filter(AccrualCandidate::sharded).map(AccrualCandidate::userId).toList();
+                Set<Long> undrained = Set.of();
+                if (!sharded.isEmpty()) {
+                    Map<Long, BigDecimal> drained = slotRepository.drainUnlocked(sharded);
+                    if (!drained.isEmpty()) {
+                        jdbcRepository.addToBalances(drained);
+                    }
+                    undrained = slotRepository.withSlotBalance(sharded);
+                }
+                Set<Long> skipped = undrained;
+                List<Long> ids = due.stream().filter(candidate -> !skipped.contains(candidate.userId()))
+                        .map(AccrualCandidate::id).toList();
+                if (!ids.isEmpty()) {
+                    updated = jdbcRepository.accrue(ids, tick);
+                }
             }
+            return new ChunkResult(updated, jdbcRepository.hasDueForAccrual(chunk.fromId(), chunk.toId(), tick));
+        });
+    }
+
+    private ChunkResult await(Future<ChunkResult> future, Chunk chunk) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            log.error("Balance increase failed for accounts {}..{}", chunk.fromId(), chunk.toId(), e.getCause());
+            return new ChunkResult(0, true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Balance increase interrupted", e);
+        }
+    }
 
-            account.setBalance(newBalance);
-            repository.save(account);
-            log.debug("Updated balance for account {}: {}", account.getId(), newBalance);
+    private void pause() {
+        try {
+            Thread.sleep(properties.retryDelay());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Balance increase interrupted", e);
         }
-        log.info("Balance increase process completed");
     }
-}
\ No newline at end of file
+
+    private record Chunk(long fromId, long toId) {}
+
+    private record ChunkResult(int updated, boolean pending) {}
+}
@@ -0,0 +1,437 @@
+package com.example.demo.service;
+
+import com.example.demo.config.LedgerProperties;
+import com.example.demo.dto.TransferResultDTO;
+import com.example.demo.dto.TransferStatus;
+import com.example.demo.repository.AccountJdbcRepository;
+import com.example.demo.repository.AccountSlotRepository;
+import com.example.demo.repository.LedgerCheckpointRepository;
+import com.example.demo.service.TransferService.TransferCommand;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory движок переводов (профиль in-memory-ledger). Балансы всех аккаунтов хранятся в памяти
+ * в копейках, и их меняет единственный поток-секвенсор, поэтому блокировки не нужны.
+ * Каждый применённый перевод пишется в {@link TransferJournal}; вызывающий получает ответ
+ * только после сброса журнала на диск. Изменённые балансы асинхронно сбрасываются в accounts
+ * вместе с номером последней учтённой записи (checkpoint), а при старте журнал проигрывается
+ * с этого номера. Начисление процентов в этом режиме тоже выполняет секвенсор
+ */
+@Service
+@Profile("in-memory-ledger")
+@Slf4j
+public class InMemoryTransferEngine {
+
+    private static final int LOAD_FETCH_SIZE = 10_000;
+
+    private final AccountJdbcRepository accountRepository;
+    private final AccountSlotRepository slotRepository;
+    private final LedgerCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerProperties properties;
+    private final BlockingQueue<Command> queue;
+    private final Thread sequencer;
+    private final ExecutorService flusher;
+    private volatile boolean running = true;
+
+    // Состояние секвенсора: до старта потока и после его остановки с ним работает только start/stop
+    private final Map<Long, Balance> balances = new HashMap<>();
+    private Map<Long, Long> dirty = new HashMap<>();
+    private long sequence;
+    private long nextFlush;
+    private long nextAccrual;
+    private TransferJournal journal;
+
+    // Снимок, который не удалось записать в БД; доступен только потоку flusher
+    private Snapshot failedSnapshot;
+
+    public InMemoryTransferEngine(AccountJdbcRepository accountRepository,
+                                  AccountSlotRepository slotRepository,
+                                  LedgerCheckpointRepository checkpointRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  LedgerProperties properties) {
+        this.accountRepository = accountRepository;
+        this.slotRepository = slotRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+        this.sequencer = Thread.ofPlatform().name("transfer-ledger-sequencer").unstarted(this::run);
+        this.flusher = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("transfer-ledger-flusher").factory());
+    }
+
+    @PostConstruct
+    void start() {
+        // Слоты шардированных аккаунтов движку не нужны: он хранит полный баланс и пишет его в accounts
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<Long, BigDecimal> drained = slotRepository.drainAll();
+            if (!drained.isEmpty()) {
+                accountRepository.addToBalances(drained);
+            }
+            accountRepository.forEachAccount(LOAD_FETCH_SIZE, account -> balances.put(account.userId(),
+                    new Balance(toCents(account.balance()), toCents(account.initialDeposit()))));
+        });
+        long checkpoint = checkpointRepository.lastSequence();
+        sequence = checkpoint;
+
+        journal = new TransferJournal(properties.journalPath(), properties.journalSize().toBytes());
+        int[] replayed = {0};
+        journal.replay(entry -> {
+            if (entry.sequence() > checkpoint) {
+                apply(entry);
+                sequence = entry.sequence();
+                replayed[0]++;
+            }
+        });
+        // Восстановленное сразу фиксируем в БД, после чего журнал можно начать заново
+        if (!dirty.isEmpty()) {
+            flush(takeSnapshot());
+        }
+        journal.reset();
+        log.info("In-memory ledger loaded {} accounts, replayed {} journal records after checkpoint {}",
+                balances.size(), replayed[0], checkpoint);
+
+        long now = System.nanoTime();
+        nextFlush = now + properties.flushInterval().toNanos();
+        nextAccrual = now + properties.accrualInterval().toNanos();
+        sequencer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException, IOException {
+        running = false;
+        sequencer.interrupt();
+        sequencer.join();
+        List<Command> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(command -> command.reject(new RejectedExecutionException("Transfer service is shutting down")));
+        try {
+            flusher.submit(() -> flush(takeSnapshot())).get();
+        } catch (ExecutionException e) {
+            log.error("Final ledger checkpoint failed, journal will be replayed on next start", e.getCause());
+        }
+        flusher.shutdown();
+        journal.close();
+    }
+
+    /**
+     * Применяет переводы по порядку и возвращает результат по каждому после сброса журнала на диск
+     */
+    List<TransferResultDTO> transferAll(List<TransferCommand> transfers) {
+        long[] cents = new long[transfers.size()];
+        for (int i = 0; i < cents.length; i++) {
+            cents[i] = amountToCents(transfers.get(i).amount());
+        }
+        return submit(new TransferRequest(transfers, cents, new CompletableFuture<>()));
+    }
+
+    public Optional<BigDecimal> getBalance(Long userId) {
+        return submit(new BalanceQuery(userId, new CompletableFuture<>()));
+    }
+
+    private <T> T submit(Command command) {
+        if (!running || !queue.offer(command)) {
+            throw new RejectedExecutionException("Transfer queue is full");
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            T result = (T) command.future().join();
+            return result;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void run() {
+        List<Command> batch = new ArrayList<>(properties.maxBatchSize());
+        List<Runnable> completions = new ArrayList<>(properties.maxBatchSize());
+        while (running) {
+            try {
+                long now = System.nanoTime();
+                Command first = queue.poll(Math.max(0, Math.min(nextFlush, nextAccrual) - now), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, properties.maxBatchSize() - 1);
+                }
+                long journaled = sequence;
+                for (Command command : batch) {
+                    completions.add(process(command));
+                }
+                now = System.nanoTime();
+                if (now - nextAccrual >= 0) {
+                    accrue();
+                    nextAccrual = now + properties.accrualInterval().toNanos();
+                }
+                if (sequence != journaled) {
+                    journal.force();
+                }
+                completions.forEach(Runnable::run);
+                completions.clear();
+                if (now - nextFlush >= 0) {
+                    if (!dirty.isEmpty()) {
+                        Snapshot snapshot = takeSnapshot();
+                        flusher.execute(() -> flushQuietly(snapshot));
+                    }
+                    nextFlush = now + properties.flushInterval().toNanos();
+                }
+            } catch (InterruptedException e) {
+                batch.forEach(command -> command.reject(new RejectedExecutionException("Transfer service is shutting down")));
+                return;
+            } catch (RuntimeException e) {
+                // Команды до сбоя уже применены и записаны в журнал: они завершаются успешно,
+                // отклоняются только не начатые
+                int applied = completions.size();
+                log.error("Ledger sequencer failed after {} of {} commands", applied, batch.size(), e);
+                completeApplied(completions);
+                batch.subList(applied, batch.size()).forEach(command -> command.reject(e));
+            } finally {
+                batch.clear();
+                completions.clear();
+            }
+        }
+    }
+
+    /**
+     * Ответ на команды, применённые до сбоя секвенсора, после сброса их записей журнала на диск
+     */
+    private void completeApplied(List<Runnable> completions) {
+        if (completions.isEmpty()) {
+            return;
+        }
+        try {
+            journal.force();
+        } catch (RuntimeException e) {
+            log.error("Failed to force transfer journal, {} applied commands will be persisted by the next flush",
+                    completions.size(), e);
+        }
+        completions.forEach(Runnable::run);
+    }
+
+    private Runnable process(Command command) {
+        return switch (command) {
+            case TransferRequest request -> {
+                // Место под все переводы запроса резервируется до первого из них, чтобы сбой
+                // checkpoint не оставил запрос применённым частично
+                ensureJournalRoom(request.transfers().size());
+                List<TransferResultDTO> results = new ArrayList<>(request.transfers().size());
+                for (int i = 0; i < request.transfers().size(); i++) {
+                    results.add(transfer(request.transfers().get(i), request.cents()[i]));
+                }
+                yield () -> request.future().complete(results);
+            }
+            case BalanceQuery query -> {
+                Balance balance = balances.get(query.userId());
+                Optional<BigDecimal> result = Optional.ofNullable(balance).map(b -> BigDecimal.valueOf(b.cents, 2));
+                yield () -> query.future().complete(result);
+            }
+        };
+    }
+
+    private TransferResultDTO transfer(TransferCommand transfer, long cents) {
+        if (cents < 0) {
+            return transfer.result(TransferStatus.FAILED, "Amount must have at most 2 decimal places");
+        }
+        Balance from = balances.get(transfer.fromUserId());
+        Balance to = balances.get(transfer.toUserId());
+        if (from == null) {
+            return transfer.result(TransferStatus.FAILED, "Sender account not found");
+        }
+        if (to == null) {
+            return transfer.result(TransferStatus.FAILED, "Receiver account not found");
+        }
+        if (from.cents < cents) {
+            return transfer.result(TransferStatus.FAILED, "Insufficient funds");
+        }
+        append(TransferJournal.TYPE_TRANSFER, transfer.fromUserId(), transfer.toUserId(), cents);
+        from.cents -= cents;
+        to.cents += cents;
+        dirty.put(transfer.fromUserId(), from.cents);
+        dirty.put(transfer.toUserId(), to.cents);
+        return transfer.result(TransferStatus.COMPLETED, null);
+    }
+
+    /**
+     * Начисление 10% на баланс, но не более 207% от начального депозита. В снимок попадают только
+     * изменившиеся балансы, поэтому аккаунты на пределе не переписываются при каждом сбросе
+     */
+    private void accrue() {
+        append(TransferJournal.TYPE_ACCRUAL, 0, 0, 0);
+        accrueAll();
+        log.debug("Interest accrued for {} accounts at sequence {}", balances.size(), sequence);
+    }
+
+    private void apply(TransferJournal.Entry entry) {
+        switch (entry.type()) {
+            case TransferJournal.TYPE_TRANSFER -> {
+                Balance from = balances.get(entry.from());
+                Balance to = balances.get(entry.to());
+                from.cents -= entry.cents();
+                to.cents += entry.cents();
+                dirty.put(entry.from(), from.cents);
+                dirty.put(entry.to(), to.cents);
+            }
+            case TransferJournal.TYPE_ACCRUAL -> accrueAll();
+            default -> throw new IllegalStateException("Unknown journal record type " + entry.type());
+        }
+    }
+
+    private void accrueAll() {
+        balances.forEach((userId, balance) -> {
+            if (balance.accrue()) {
+                dirty.put(userId, balance.cents);
+            }
+        });
+    }
+
+    private void append(int type, long from, long to, long cents) {
+        ensureJournalRoom(1);
+        journal.append(++sequence, type, from, to, cents);
+    }
+
+    /**
+     * Checkpoint заранее, если records записей не помещаются в журнал. Запрос больше всего
+     * журнала всё равно получит checkpoint на середине
+     */
+    private void ensureJournalRoom(int records) {
+        if (!journal.hasRoom(records)) {
+            checkpointAndResetJournal();
+        }
+    }
+
+    /**
+     * Журнал заполнен: синхронно фиксируем все балансы в БД и начинаем журнал заново
+     */
+    private void checkpointAndResetJournal() {
+        journal.force();
+        Snapshot snapshot = takeSnapshot();
+        try {
+            flusher.submit(() -> flush(snapshot)).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Transfer journal is full and checkpoint failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while checkpointing transfer journal", e);
+        }
+        journal.reset();
+        log.info("Transfer journal checkpointed at sequence {} and reset", snapshot.sequence());
+    }
+
+    private Snapshot takeSnapshot() {
+        Snapshot snapshot = new Snapshot(sequence, dirty);
+        dirty = new HashMap<>();
+        return snapshot;
+    }
+
+    private void flushQuietly(Snapshot snapshot) {
+        try {
+            flush(snapshot);
+        } catch (RuntimeException e) {
+            log.error("Failed to flush ledger balances up to sequence {}, will retry", snapshot.sequence(), e);
+        }
+    }
+
+    /**
+     * Запись снимка в accounts вместе со сдвигом checkpoint в одной транзакции.
+     * Несохранённый снимок объединяется со следующим, поэтому изменения не теряются
+     */
+    private void flush(Snapshot snapshot) {
+        Snapshot pending = failedSnapshot != null ? failedSnapshot.merge(snapshot) : snapshot;
+        failedSnapshot = null;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (checkpointRepository.advance(pending.sequence()) && !pending.balances().isEmpty()) {
+                    Map<Long, BigDecimal> values = new HashMap<>(pending.balances().size());
+                    pending.balances().forEach((userId, cents) -> values.put(userId, BigDecimal.valueOf(cents, 2)));
+                    accountRepository.setBalances(values);
+                }
+            });
+        } catch (RuntimeException e) {
+            failedSnapshot = pending;
+            throw e;
+        }
+    }
+
+    private static long toCents(BigDecimal value) {
+        return value.movePointRight(2).longValueExact();
+    }
+
+    private static long amountToCents(BigDecimal amount) {
+        try {
+            return toCents(amount);
+        } catch (ArithmeticException e) {
+            return -1;
+        }
+    }
+
+    private static final class Balance {
+        private long cents;
+        private final long cap;
+
+        private Balance(long cents, long initialDeposit) {
+            this.cents = cents;
+            this.cap = (initialDeposit * 207 + 50) / 100;
+        }
+
+        /**
+         * Баланс на пределе или выше (после входящих переводов) не меняется
+         *
+         * @return изменился ли баланс
+         */
+        private boolean accrue() {
+            if (cents >= cap) {
+                return false;
+            }
+            long accrued = Math.min((cents * 110 + 50) / 100, cap);
+            boolean changed = accrued != cents;
+            cents = accrued;
+            return changed;
+        }
+    }
+
+    private record Snapshot(long sequence, Map<Long, Long> balances) {
+
+        Snapshot merge(Snapshot newer) {
+            Map<Long, Long> merged = new HashMap<>(balances);
+            merged.putAll(newer.balances());
+            return new Snapshot(newer.sequence(), merged);
+        }
+    }
+
+    private sealed interface Command permits TransferRequest, BalanceQuery {
+        CompletableFuture<?> future();
+
+        default void reject(RuntimeException e) {
+            future().completeExceptionally(e);
+        }
+    }
+
+    private record TransferRequest(List<TransferCommand> transfers, long[] cents,
+                                   CompletableFuture<List<TransferResultDTO>> future) implements Command {}
+
+    private record BalanceQuery(Long userId, CompletableFuture<Optional<BigDecimal>> future) implements Command {}
+}
@@ -0,0 +1,142 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Выбор одного узла кластера для запуска периодических задач. Лидером становится узел, получивший
+ * сессионную advisory-блокировку PostgreSQL; он держит для неё отдельное соединение. Если узел
+ * падает или теряет соединение, PostgreSQL снимает блокировку, и её забирает первый узел,
+ * попытавшийся стать лидером на следующем тике
+ */
+@Service
+@Slf4j
+public class SchedulerLeaderElection {
+
+    /**
+     * Ключ advisory-блокировки, общий для всех узлов
+     */
+    static final long LOCK_KEY = 0x7363686564756c65L;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    private Connection lockConnection;
+
+    public SchedulerLeaderElection(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Является ли узел лидером; если лидера нет, пытается им стать
+     */
+    public synchronized boolean isLeader() {
+        if (lockConnection != null) {
+            if (isValid(lockConnection)) {
+                return true;
+            }
+            log.warn("Node {} lost scheduler leadership: lock connection is broken", nodeId);
+            close(lockConnection);
+            lockConnection = null;
+        }
+        tryAcquire();
+        return lockConnection != null;
+    }
+
+    /**
+     * Идентификатор узла: pid@host
+     */
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Идентификатор текущего лидера по данным PostgreSQL; null, если лидера нет
+     */
+    public String leaderNodeId() {
+        List<String> leaders = jdbcTemplate.queryForList("""
+                SELECT a.application_name FROM pg_locks l JOIN pg_stat_activity a ON a.pid = l.pid
+                WHERE l.locktype = 'advisory' AND l.granted
+                  AND l.classid::bigint = ? AND l.objid::bigint = ? AND l.objsubid = 1
+                """, String.class, LOCK_KEY >>> 32, LOCK_KEY & 0xFFFFFFFFL);
+        return leaders.isEmpty() ? null : leaders.getFirst();
+    }
+
+    @PreDestroy
+    synchronized void resign() {
+        if (lockConnection == null) {
+            return;
+        }
+        try (PreparedStatement ps = lockConnection.prepareStatement(
+                "SELECT pg_advisory_unlock(?), set_config('application_name', '', false)")) {
+            ps.setLong(1, LOCK_KEY);
+            ps.execute();
+            log.info("Node {} resigned scheduler leadership", nodeId);
+        } catch (SQLException e) {
+            log.warn("Failed to release scheduler leadership of node {}", nodeId, e);
+        } finally {
+            close(lockConnection);
+            lockConnection = null;
+        }
+    }
+
+    /**
+     * Попытка получить блокировку без ожидания. Победитель подписывает своё соединение
+     * идентификатором узла, чтобы остальные узлы видели, кто лидер
+     */
+    private void tryAcquire() {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            connection.setAutoCommit(true);
+            // CASE гарантирует порядок: соединение подписывается, только если блокировка получена
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT CASE WHEN pg_try_advisory_lock(?) THEN set_config('application_name', ?, false) END")) {
+                ps.setLong(1, LOCK_KEY);
+                ps.setString(2, nodeId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    if (rs.getString(1) == null) {
+                        return;
+                    }
+                }
+            }
+            lockConnection = connection;
+            connection = null;
+            log.info("Node {} became scheduler leader", nodeId);
+        } catch (SQLException e) {
+            log.warn("Scheduler leader election failed on node {}", nodeId, e);
+        } finally {
+            if (connection != null) {
+                close(connection);
+            }
+        }
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Failed to close scheduler lock connection", e);
+        }
+    }
+}
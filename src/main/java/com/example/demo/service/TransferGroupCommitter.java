@@ -0,0 +1,180 @@
+package com.example.demo.service;
+
+import com.example.demo.config.TransferProperties;
+import com.example.demo.dto.TransferResultDTO;
+import com.example.demo.dto.TransferStatus;
+import com.example.demo.service.TransferService.TransferCommand;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Групповой коммит одиночных переводов: запросы копятся в очереди, а один поток-коммиттер
+ * применяет до max-batch-size переводов (или всё, что пришло за linger) в одной транзакции.
+ * Вызывающий поток ждёт, пока транзакция с его переводом не будет зафиксирована
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "transfer.group-commit.enabled", havingValue = "true")
+public class TransferGroupCommitter {
+
+    private final TransferService transferService;
+    private final TransferProperties.GroupCommit properties;
+    private final BlockingQueue<PendingTransfer> queue;
+    private final DistributionSummary batchSize;
+    private final Timer commitLatency;
+    private final Thread committer;
+    private volatile boolean running = true;
+    // Пачка, которую коммиттер сейчас применяет; stop завершает её, если коммиттер не успел
+    private volatile List<PendingTransfer> inFlight = List.of();
+
+    public TransferGroupCommitter(TransferService transferService, TransferProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.transferService = transferService;
+        this.properties = properties.groupCommit();
+        this.queue = new ArrayBlockingQueue<>(this.properties.queueCapacity());
+        this.batchSize = DistributionSummary.builder("transfer.group_commit.batch.size")
+                .description("Number of transfers committed in one transaction")
+                .register(meterRegistry);
+        this.commitLatency = Timer.builder("transfer.group_commit.commit.latency")
+                .description("Time to apply and commit one batch of transfers")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gauge("transfer.group_commit.queue.size", queue, BlockingQueue::size);
+        this.committer = Thread.ofPlatform().name("transfer-group-committer").daemon().unstarted(this::run);
+    }
+
+    @PostConstruct
+    void start() {
+        committer.start();
+        log.info("Transfer group commit enabled: max batch {}, linger {}, queue capacity {}",
+                properties.maxBatchSize(), properties.linger(), properties.queueCapacity());
+    }
+
+    /**
+     * Останавливает коммиттер. Если пачка не закончилась за 5 секунд, её вызывающие получают отказ,
+     * а не ждут вечно: поток-демон не переживёт остановку JVM. Такой перевод мог всё же
+     * зафиксироваться, поэтому сообщение говорит, что его исход неизвестен
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        committer.interrupt();
+        committer.join(TimeUnit.SECONDS.toMillis(5));
+        if (committer.isAlive()) {
+            List<PendingTransfer> unfinished = inFlight;
+            log.warn("Group commit of {} transfers did not finish before shutdown", unfinished.size());
+            unfinished.forEach(pending -> pending.future().completeExceptionally(
+                    new RejectedExecutionException("Transfer service is shutting down, transfer outcome is unknown")));
+        }
+        List<PendingTransfer> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(pending -> pending.future().completeExceptionally(
+                new RejectedExecutionException("Transfer service is shutting down")));
+    }
+
+    /**
+     * Перевод денег между пользователями через общую очередь. Возвращается после коммита
+     */
+    public void transfer(Long fromUserId, Long toUserId, BigDecimal amount) {
+        transferService.validate(fromUserId, toUserId, amount);
+        PendingTransfer pending = new PendingTransfer(new TransferCommand(fromUserId, toUserId, amount),
+                new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            log.warn("Transfer queue is full, rejecting transfer from user {} to user {}", fromUserId, toUserId);
+            throw new RejectedExecutionException("Transfer queue is full");
+        }
+        // stop мог разобрать очередь между проверкой running и offer
+        if (!running && queue.remove(pending)) {
+            throw new RejectedExecutionException("Transfer service is shutting down");
+        }
+
+        TransferResultDTO result;
+        try {
+            result = pending.future().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        if (result.status() == TransferStatus.FAILED) {
+            throw new IllegalArgumentException(result.message());
+        }
+    }
+
+    private void run() {
+        List<PendingTransfer> batch = new ArrayList<>(properties.maxBatchSize());
+        while (running) {
+            try {
+                collect(batch);
+                inFlight = List.copyOf(batch);
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.future().completeExceptionally(
+                        new RejectedExecutionException("Transfer service is shutting down")));
+                return;
+            } finally {
+                batch.clear();
+                inFlight = List.of();
+            }
+        }
+    }
+
+    /**
+     * Ждёт первый перевод, затем добирает пачку, пока не истечёт linger или пачка не заполнится
+     */
+    private void collect(List<PendingTransfer> batch) throws InterruptedException {
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + properties.linger().toNanos();
+        while (batch.size() < properties.maxBatchSize()) {
+            if (queue.drainTo(batch, properties.maxBatchSize() - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            PendingTransfer next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commit(List<PendingTransfer> batch) {
+        long started = System.nanoTime();
+        try {
+            List<TransferResultDTO> results = transferService.transferAll(
+                    batch.stream().map(PendingTransfer::command).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.error("Group commit of {} transfers failed", batch.size(), e);
+            batch.forEach(pending -> pending.future().completeExceptionally(e));
+        } finally {
+            commitLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            batchSize.record(batch.size());
+        }
+    }
+
+    private record PendingTransfer(TransferCommand command, CompletableFuture<TransferResultDTO> future) {}
+}
@@ -0,0 +1,132 @@
+package com.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал упреждающей записи для {@link InMemoryTransferEngine}: файл фиксированного размера,
+ * целиком отображённый в память. Записи фиксированной длины идут подряд после заголовка;
+ * конец журнала — первая запись с неверной контрольной суммой или неубывающим номером.
+ * Пишет в журнал только поток-секвенсор, поэтому синхронизация не нужна
+ */
+@Slf4j
+class TransferJournal implements Closeable {
+
+    static final int TYPE_TRANSFER = 1;
+    static final int TYPE_ACCRUAL = 2;
+
+    private static final int MAGIC = 0x544A524E; // "TJRN"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    // seq(8) type(4) crc(4) from(8) to(8) cents(8)
+    static final int RECORD_SIZE = 40;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CRC32C crc = new CRC32C();
+
+    TransferJournal(Path path, long size) {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open transfer journal " + path, e);
+        }
+        if (buffer.getInt(0) == 0) {
+            buffer.putInt(0, MAGIC).putInt(4, VERSION);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Unsupported transfer journal format in " + path);
+        }
+        buffer.position(HEADER_SIZE);
+    }
+
+    /**
+     * Читает записи от начала журнала и переставляет позицию записи за последнюю целую запись
+     */
+    void replay(Consumer<Entry> consumer) {
+        long previousSequence = 0;
+        int position = HEADER_SIZE;
+        while (position + RECORD_SIZE <= buffer.capacity()) {
+            Entry entry = read(position);
+            if (entry == null || entry.sequence() <= previousSequence) {
+                break;
+            }
+            consumer.accept(entry);
+            previousSequence = entry.sequence();
+            position += RECORD_SIZE;
+        }
+        buffer.position(position);
+    }
+
+    /**
+     * Поместится ли ещё records записей
+     */
+    boolean hasRoom(int records) {
+        return buffer.remaining() >= (long) records * RECORD_SIZE;
+    }
+
+    void append(long sequence, int type, long from, long to, long cents) {
+        int position = buffer.position();
+        buffer.putLong(position, sequence)
+                .putInt(position + 8, type)
+                .putLong(position + 16, from)
+                .putLong(position + 24, to)
+                .putLong(position + 32, cents)
+                .putInt(position + 12, checksum(position));
+        buffer.position(position + RECORD_SIZE);
+    }
+
+    /**
+     * Сброс записанного на диск; после возврата записи переживают падение процесса и ОС
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Начинает журнал заново. Вызывается только после checkpoint всех записанных переводов;
+     * старые записи за новыми отсекаются при чтении по номеру
+     */
+    void reset() {
+        buffer.putLong(HEADER_SIZE, 0);
+        buffer.force();
+        buffer.position(HEADER_SIZE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private Entry read(int position) {
+        long sequence = buffer.getLong(position);
+        if (sequence <= 0 || buffer.getInt(position + 12) != checksum(position)) {
+            return null;
+        }
+        return new Entry(sequence, buffer.getInt(position + 8), buffer.getLong(position + 16),
+                buffer.getLong(position + 24), buffer.getLong(position + 32));
+    }
+
+    private int checksum(int position) {
+        crc.reset();
+        crc.update(buffer.slice(position, 12));
+        crc.update(buffer.slice(position + 16, RECORD_SIZE - 16));
+        return (int) crc.getValue();
+    }
+
+    record Entry(long sequence, int type, long from, long to, long cents) {}
+}
@@ -1,13 +1,35 @@
 package com.example.demo.service;
 
+import com.example.demo.config.TransferProperties;
+import com.example.demo.dto.TransferRequestDTO;
+import com.example.demo.dto.TransferResultDTO;
+import com.example.demo.dto.TransferStatus;
 import com.example.demo.model.Account;
+import com.example.demo.repository.AccountJdbcRepository;
 import com.example.demo.repository.AccountRepository;
-import jakarta.transaction.Transactional;
+import com.example.demo.repository.AccountSlotRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
@@ -15,40 +37,318 @@ import java.math.BigDecimal;
 public class TransferService {
 
     private final AccountRepository repository;
+    private final AccountJdbcRepository jdbcRepository;
+    private final AccountSlotRepository slotRepository;
+    private final AccrualService accrualService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Optional<InMemoryTransferEngine> inMemoryEngine;
 
     /**
      * Перевод денег между пользователями
      */
-    @Transactional(rollbackOn = Exception.class)
     public void transfer(Long fromUserId, Long toUserId, BigDecimal amount) {
         log.info("Initiating transfer of {} from user {} to user {}", amount, fromUserId, toUserId);
 
+        validate(fromUserId, toUserId, amount);
+        if (inMemoryEngine.isPresent()) {
+            TransferResultDTO result = inMemoryEngine.get()
+                    .transferAll(List.of(new TransferCommand(fromUserId, toUserId, amount))).getFirst();
+            if (result.status() == TransferStatus.FAILED) {
+                log.warn("Transfer from user {} to user {} failed: {}", fromUserId, toUserId, result.message());
+                throw new IllegalArgumentException(result.message());
+            }
+            log.info("Transfer completed: {} from user {} to user {}", amount, fromUserId, toUserId);
+            return;
+        }
+        inTransactionWithRetry("transfer from user " + fromUserId + " to user " + toUserId, () -> {
+            doTransfer(fromUserId, toUserId, amount);
+            return null;
+        });
+
+        log.info("Transfer completed: {} from user {} to user {}", amount, fromUserId, toUserId);
+    }
+
+    /**
+     * Пакетный перевод от одного пользователя многим получателям в одной транзакции.
+     * Переводы применяются по порядку; перевод на несуществующий аккаунт или сверх остатка
+     * не выполняется и помечается FAILED, остальные переводы пакета при этом проходят
+     */
+    public List<TransferResultDTO> transferBatch(Long fromUserId, List<TransferRequestDTO> transfers) {
+        log.info("Initiating batch of {} transfers from user {}", transfers.size(), fromUserId);
+
+        if (transfers.isEmpty()) {
+            throw new IllegalArgumentException("Transfer batch is empty");
+        }
+        if (transfers.size() > properties.batchMaxSize()) {
+            throw new IllegalArgumentException("Transfer batch cannot exceed " + properties.batchMaxSize() + " transfers");
+        }
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequestDTO transfer = transfers.get(i);
+            if (fromUserId.equals(transfer.toUserId())) {
+                throw new IllegalArgumentException("Transfer #" + i + ": cannot transfer to the same user");
+            }
+            if (transfer.amount().compareTo(BigDecimal.ZERO) <= 0) {
+                throw new IllegalArgumentException("Transfer #" + i + ": transfer amount must be positive");
+            }
+        }
+
+        List<TransferResultDTO> results = transferAll(transfers.stream()
+                .map(transfer -> new TransferCommand(fromUserId, transfer.toUserId(), transfer.amount()))
+                .toList());
+
+        log.info("Batch from user {} completed: {} of {} transfers applied", fromUserId,
+                results.stream().filter(r -> r.status() == TransferStatus.COMPLETED).count(), transfers.size());
+        return results;
+    }
+
+    /**
+     * Применение набора уже проверенных переводов (возможно, от разных отправителей) в одной транзакции.
+     * Все затронутые аккаунты блокируются одним запросом в порядке возрастания user_id,
+     * итоговые изменения балансов записываются одним JDBC batch. В профиле in-memory-ledger
+     * переводы применяет {@link InMemoryTransferEngine}
+     */
+    List<TransferResultDTO> transferAll(List<TransferCommand> transfers) {
+        if (inMemoryEngine.isPresent()) {
+            return inMemoryEngine.get().transferAll(transfers);
+        }
+        return inTransactionWithRetry("batch of " + transfers.size() + " transfers", () -> doTransferAll(transfers));
+    }
+
+    void validate(Long fromUserId, Long toUserId, BigDecimal amount) {
         if (fromUserId.equals(toUserId)) {
             throw new IllegalArgumentException("Cannot transfer to the same user");
         }
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Transfer amount must be positive");
         }
+    }
+
+    /**
+     * Выполнение действия в отдельной транзакции; если блокировку не удалось
+     * получить за lock-timeout или аккаунт изменили параллельно (конфликт version),
+     * действие повторяется до max-retries раз
+     */
+    private <T> T inTransactionWithRetry(String description, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    repository.setLocalLockTimeout(properties.lockTimeout().toMillis() + "ms");
+                    return action.get();
+                });
+            } catch (PessimisticLockingFailureException | OptimisticLockingFailureException e) {
+                String conflict = conflictType(e);
+                meterRegistry.counter("transfer.conflicts", "type", conflict).increment();
+                if (attempt > properties.maxRetries()) {
+                    log.warn("{} failed after {} attempts due to {} conflicts", description, attempt, conflict);
+                    throw e;
+                }
+                meterRegistry.counter("transfer.retries", "type", conflict).increment();
+                log.warn("{} conflict on {}, retry {}/{}", conflict, description, attempt, properties.maxRetries());
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void doTransfer(Long fromUserId, Long toUserId, BigDecimal amount) {
+        accrualService.materialize(List.of(fromUserId, toUserId));
+        switch (properties.engine()) {
+            case ENTITY -> transferEntities(fromUserId, toUserId, amount);
+            case CONDITIONAL_UPDATE -> transferConditionally(fromUserId, toUserId, amount);
+            case OPTIMISTIC -> transferOptimistically(fromUserId, toUserId, amount);
+        }
+    }
+
+    private void transferEntities(Long fromUserId, Long toUserId, BigDecimal amount) {
+        // Блокируем аккаунты всегда в порядке возрастания user_id, чтобы встречные переводы не давали deadlock
+        if (fromUserId < toUserId) {
+            withdraw(fromUserId, lockSender(fromUserId), amount);
+            deposit(toUserId, amount);
+        } else {
+            deposit(toUserId, amount);
+            withdraw(fromUserId, lockSender(fromUserId), amount);
+        }
+    }
+
+    /**
+     * Списание с загруженного аккаунта. Если основного баланса не хватает, к нему
+     * присоединяются слоты шардированного аккаунта
+     */
+    private void withdraw(Long userId, Account account, BigDecimal amount) {
+        if (account.getBalance().compareTo(amount) < 0) {
+            account.setBalance(account.getBalance().add(drainSlots(userId)));
+        }
+        if (account.getBalance().compareTo(amount) < 0) {
+            log.warn("Insufficient funds for user {}", userId);
+            throw new IllegalArgumentException("Insufficient funds");
+        }
+        account.setBalance(account.getBalance().subtract(amount));
+        repository.save(account);
+    }
+
+    /**
+     * Зачисление: на шардированный аккаунт — в случайный слот без блокировки строки аккаунта,
+     * на обычный — через сущность под блокировкой
+     */
+    private void deposit(Long userId, BigDecimal amount) {
+        if (slotRepository.creditRandomSlot(userId, amount)) {
+            return;
+        }
+        Account account = lockReceiver(userId);
+        account.setBalance(account.getBalance().add(amount));
+        repository.save(account);
+    }
+
+    private BigDecimal drainSlots(Long userId) {
+        return slotRepository.drain(List.of(userId)).getOrDefault(userId, BigDecimal.ZERO);
+    }
+
+    /**
+     * Перевод двумя UPDATE без загрузки сущностей. Строки по-прежнему блокируются
+     * в порядке возрастания user_id: при обратном порядке сначала выполняется зачисление,
+     * и оно откатывается вместе с транзакцией, если списание не прошло
+     */
+    private void transferConditionally(Long fromUserId, Long toUserId, BigDecimal amount) {
+        if (fromUserId < toUserId) {
+            debit(fromUserId, amount);
+            credit(toUserId, amount);
+        } else {
+            credit(toUserId, amount);
+            debit(fromUserId, amount);
+        }
+    }
 
-        // Блокируем аккаунты для предотвращения гонки
+    /**
+     * Перевод без блокировок: аккаунты читаются как есть, а при сохранении Hibernate
+     * проверяет version. Если аккаунт успели изменить, транзакция откатывается
+     * и перевод повторяется в inTransactionWithRetry
+     */
+    private void transferOptimistically(Long fromUserId, Long toUserId, BigDecimal amount) {
         Account fromAccount = repository.findByUserId(fromUserId)
                 .orElseThrow(() -> new IllegalArgumentException("Sender account not found"));
-        Account toAccount = repository.findByUserId(toUserId)
-                .orElseThrow(() -> new IllegalArgumentException("Receiver account not found"));
+        withdraw(fromUserId, fromAccount, amount);
+
+        if (!slotRepository.creditRandomSlot(toUserId, amount)) {
+            Account toAccount = repository.findByUserId(toUserId)
+                    .orElseThrow(() -> new IllegalArgumentException("Receiver account not found"));
+            toAccount.setBalance(toAccount.getBalance().add(amount));
+            repository.save(toAccount);
+        }
+    }
 
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
-            log.warn("Insufficient funds for user {}", fromUserId);
+    private void debit(Long userId, BigDecimal amount) {
+        if (repository.debit(userId, amount) == 0) {
+            // Недостающее может лежать в слотах шардированного аккаунта
+            BigDecimal drained = drainSlots(userId);
+            if (drained.signum() > 0) {
+                repository.credit(userId, drained);
+                if (repository.debit(userId, amount) == 1) {
+                    return;
+                }
+            }
+            if (!repository.existsByUserId(userId)) {
+                throw new IllegalArgumentException("Sender account not found");
+            }
+            log.warn("Insufficient funds for user {}", userId);
             throw new IllegalArgumentException("Insufficient funds");
         }
+    }
 
-        // Обновляем балансы
-        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
-        toAccount.setBalance(toAccount.getBalance().add(amount));
+    private void credit(Long userId, BigDecimal amount) {
+        if (!slotRepository.creditRandomSlot(userId, amount) && repository.credit(userId, amount) == 0) {
+            throw new IllegalArgumentException("Receiver account not found");
+        }
+    }
 
-        // Сохраняем изменения
-        repository.save(fromAccount);
-        repository.save(toAccount);
+    private List<TransferResultDTO> doTransferAll(List<TransferCommand> transfers) {
+        Set<Long> userIds = new TreeSet<>();
+        transfers.forEach(transfer -> {
+            userIds.add(transfer.fromUserId());
+            userIds.add(transfer.toUserId());
+        });
+        accrualService.materialize(userIds);
 
-        log.info("Transfer completed: {} from user {} to user {}", amount, fromUserId, toUserId);
+        // Балансы меняются по ходу применения: получатель может тут же отправить полученные деньги.
+        // Строки всех участников уже заблокированы, поэтому зачисления идут в основной баланс, минуя слоты
+        Map<Long, BigDecimal> balances = new HashMap<>(jdbcRepository.lockBalances(userIds));
+        Map<Long, BigDecimal> deltas = new TreeMap<>();
+        Set<Long> slotsMerged = new HashSet<>();
+        List<TransferResultDTO> results = new ArrayList<>(transfers.size());
+        for (TransferCommand transfer : transfers) {
+            BigDecimal available = balances.get(transfer.fromUserId());
+            if (available != null && available.compareTo(transfer.amount()) < 0 && slotsMerged.add(transfer.fromUserId())) {
+                available = mergeSlots(transfer.fromUserId(), balances, deltas);
+            }
+            if (available == null) {
+                results.add(transfer.result(TransferStatus.FAILED, "Sender account not found"));
+            } else if (!balances.containsKey(transfer.toUserId())) {
+                results.add(transfer.result(TransferStatus.FAILED, "Receiver account not found"));
+            } else if (available.compareTo(transfer.amount()) < 0) {
+                results.add(transfer.result(TransferStatus.FAILED, "Insufficient funds"));
+            } else {
+                balances.put(transfer.fromUserId(), available.subtract(transfer.amount()));
+                balances.merge(transfer.toUserId(), transfer.amount(), BigDecimal::add);
+                deltas.merge(transfer.fromUserId(), transfer.amount().negate(), BigDecimal::add);
+                deltas.merge(transfer.toUserId(), transfer.amount(), BigDecimal::add);
+                results.add(transfer.result(TransferStatus.COMPLETED, null));
+            }
+        }
+
+        deltas.values().removeIf(delta -> delta.signum() == 0);
+        if (!deltas.isEmpty()) {
+            jdbcRepository.addToBalances(deltas);
+        }
+        return results;
+    }
+
+    /**
+     * Переносит слоты шардированного отправителя в основной баланс пакета; возвращает новый остаток
+     */
+    private BigDecimal mergeSlots(Long userId, Map<Long, BigDecimal> balances, Map<Long, BigDecimal> deltas) {
+        BigDecimal drained = drainSlots(userId);
+        if (drained.signum() > 0) {
+            deltas.merge(userId, drained, BigDecimal::add);
+            return balances.merge(userId, drained, BigDecimal::add);
+        }
+        return balances.get(userId);
+    }
+
+    private Account lockSender(Long userId) {
+        return repository.findByUserIdForUpdate(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Sender account not found"));
+    }
+
+    private Account lockReceiver(Long userId) {
+        return repository.findByUserIdForUpdate(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Receiver account not found"));
+    }
+
+    private static String conflictType(ConcurrencyFailureException e) {
+        return e instanceof OptimisticLockingFailureException ? "optimistic" : "pessimistic";
+    }
+
+    /**
+     * Пауза растёт линейно с номером попытки и ограничена max-retries;
+     * случайный множитель разводит повторы конкурирующих переводов во времени
+     */
+    private void backoff(int attempt) {
+        long base = properties.retryBackoff().multipliedBy(attempt).toNanos();
+        try {
+            Thread.sleep(Duration.ofNanos((long) (base * ThreadLocalRandom.current().nextDouble(0.5, 1.5))));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Transfer interrupted", e);
+        }
+    }
+
+    /**
+     * Проверенный перевод, ожидающий применения в составе пакета
+     */
+    record TransferCommand(Long fromUserId, Long toUserId, BigDecimal amount) {
+
+        TransferResultDTO result(TransferStatus status, String message) {
+            return new TransferResultDTO(toUserId, amount, status, message);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,145 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ExportFormat;
+import com.example.demo.dto.UserDTO;
+import com.example.demo.repository.UserJdbcRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Выгрузка всех пользователей потоком: строки читаются курсором и сразу пишутся в ответ,
+ * поэтому расход памяти не зависит от размера таблицы
+ */
+@Service
+@Slf4j
+public class UserExportService {
+
+    /**
+     * Строк в одной порции курсора; после каждой порции выгрузка сбрасывается клиенту
+     */
+    static final int FETCH_SIZE = 5000;
+
+    private final UserJdbcRepository jdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter userWriter;
+
+    public UserExportService(UserJdbcRepository jdbcRepository, TransactionTemplate transactionTemplate,
+                             ObjectMapper objectMapper) {
+        this.jdbcRepository = jdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        // Строки разделяет сам NdjsonRowWriter
+        this.userWriter = objectMapper.writerFor(UserDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+    }
+
+    /**
+     * Пишет всех пользователей в out в порядке id и возвращает их количество; out не закрывается
+     */
+    public long export(ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rows = switch (format) {
+            case NDJSON -> new NdjsonRowWriter(userWriter.createGenerator(writer));
+            case CSV -> new CsvRowWriter(writer);
+        };
+        long[] count = {0};
+        try {
+            // Курсор PostgreSQL работает только внутри транзакции
+            transactionTemplate.executeWithoutResult(status -> jdbcRepository.forEachUser(FETCH_SIZE, user -> {
+                try {
+                    rows.write(user);
+                    if (++count[0] % FETCH_SIZE == 0) {
+                        rows.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            log.warn("User export as {} aborted after {} rows", format, count[0]);
+            throw e.getCause();
+        }
+        rows.flush();
+        log.info("Exported {} users as {}", count[0], format);
+        return count[0];
+    }
+
+    private interface RowWriter {
+        void write(UserDTO user) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void write(UserDTO user) throws IOException {
+            userWriter.writeValue(generator, user);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    /**
+     * Поля экранируются по RFC 4180
+     */
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write("id,name,dateOfBirth,emails,phones\r\n");
+        }
+
+        @Override
+        public void write(UserDTO user) throws IOException {
+            writer.write(Long.toString(user.id()));
+            writer.write(',');
+            writeField(user.name());
+            writer.write(',');
+            writeField(user.dateOfBirth());
+            writer.write(',');
+            writeField(String.join(";", user.emails()));
+            writer.write(',');
+            writeField(String.join(";", user.phones()));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
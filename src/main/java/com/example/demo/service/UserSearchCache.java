@@ -0,0 +1,133 @@
+package com.example.demo.service;
+
+import com.example.demo.cache.EarlyRefresh;
+import com.example.demo.cache.RefreshableValue;
+import com.example.demo.cache.SingleFlight;
+import com.example.demo.config.CacheRefreshProperties;
+import com.example.demo.config.UserSearchProperties;
+import com.example.demo.dto.UserDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов поиска пользователей с версионированными ключами. Номер поколения из Redis входит
+ * в ключ каждой записи, и любое изменение данных пользователей инвалидирует все поиски одним INCR:
+ * записи старых поколений больше не читаются и истекают по TTL. Поколение одно на весь кэш, потому что
+ * в результатах любого поиска есть email и телефоны пользователей
+ */
+@Component
+public class UserSearchCache {
+
+    public static final String NAME = "userSearch";
+
+    static final String GENERATION_KEY = NAME + ":generation";
+
+    private final Cache cache;
+    private final StringRedisTemplate redisTemplate;
+    private final SingleFlight<String> loads;
+    private final EarlyRefresh earlyRefresh;
+    private final Duration ttl;
+
+    public UserSearchCache(CacheManager cacheManager, StringRedisTemplate redisTemplate, UserSearchProperties properties,
+                           CacheRefreshProperties refreshProperties, MeterRegistry meterRegistry) {
+        this.cache = cacheManager.getCache(NAME);
+        this.redisTemplate = redisTemplate;
+        this.loads = new SingleFlight<>(NAME, meterRegistry);
+        this.earlyRefresh = new EarlyRefresh(NAME, refreshProperties, meterRegistry);
+        this.ttl = properties.cacheTtl();
+    }
+
+    /**
+     * Страница из кэша текущего поколения или, при промахе, из loader с сохранением в кэш; часто
+     * запрашиваемая страница перезагружается в фоне незадолго до истечения (EarlyRefresh).
+     * Ключ вычисляется до загрузки, поэтому результат, прочитанный до инвалидации, попадает
+     * в уже устаревшее поколение. Внутри пишущей транзакции кэш не используется: её незакоммиченные
+     * изменения не должны попасть в кэш
+     *
+     * @param filters значения, определяющие результат поиска, включая режим поиска
+     */
+    public Page<UserDTO> get(Pageable pageable, Supplier<Page<UserDTO>> loader, Object... filters) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return loader.get();
+        }
+        String key = key(generation(), pageable, filters);
+        Cache.ValueWrapper stored = cache.get(key);
+        if (stored != null) {
+            if (earlyRefresh.isDue(stored.get())) {
+                earlyRefresh.refresh(key, () -> load(key, loader));
+            }
+            CachedPage cached = (CachedPage) RefreshableValue.unwrap(stored.get());
+            return new PageImpl<>(cached.content(), pageable, cached.totalElements());
+        }
+        // Одновременные одинаковые поиски выполняют один запрос
+        return loads.load(key, () -> load(key, loader));
+    }
+
+    /**
+     * Переход к новому поколению; внутри транзакции — после её коммита, чтобы поиск, выполненный
+     * до коммита, не сохранил старые данные под новым поколением
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    redisTemplate.opsForValue().increment(GENERATION_KEY);
+                }
+            });
+        } else {
+            redisTemplate.opsForValue().increment(GENERATION_KEY);
+        }
+    }
+
+    /**
+     * Загрузка страницы и сохранение со временем вычисления для досрочного обновления
+     */
+    private Page<UserDTO> load(String key, Supplier<Page<UserDTO>> loader) {
+        long start = System.nanoTime();
+        Page<UserDTO> page = loader.get();
+        cache.put(key, RefreshableValue.of(new CachedPage(new ArrayList<>(page.getContent()), page.getTotalElements()),
+                System.nanoTime() - start, ttl));
+        return page;
+    }
+
+    long generation() {
+        String generation = redisTemplate.opsForValue().get(GENERATION_KEY);
+        return generation == null ? 0 : Long.parseLong(generation);
+    }
+
+    /**
+     * Значения кодируются, чтобы разделитель в значении фильтра не давал совпадающих ключей;
+     * незаданный фильтр отличается от пустой строки
+     */
+    private static String key(long generation, Pageable pageable, Object... filters) {
+        StringBuilder key = new StringBuilder().append(generation);
+        for (Object filter : filters) {
+            key.append(':').append(filter == null ? "~" : URLEncoder.encode(filter.toString(), StandardCharsets.UTF_8));
+        }
+        return key.append(':').append(pageable.getPageNumber()).append(':').append(pageable.getPageSize())
+                .append(':').append(URLEncoder.encode(pageable.getSort().toString(), StandardCharsets.UTF_8))
+                .toString();
+    }
+
+    /**
+     * PageImpl не восстанавливается из JSON, поэтому в кэше лежат только содержимое и общее количество
+     */
+    public record CachedPage(List<UserDTO> content, long totalElements) {}
+}
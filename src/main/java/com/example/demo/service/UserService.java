@@ -1,64 +1,140 @@
 package com.example.demo.service;
 
+import com.example.demo.cache.BatchCache;
+import com.example.demo.config.UserSearchProperties;
 import com.example.demo.dto.EmailDTO;
+import com.example.demo.dto.NameMatch;
 import com.example.demo.dto.UserDTO;
-import com.example.demo.mapper.UserMapper;
+import com.example.demo.dto.UserSliceDTO;
 import com.example.demo.model.EmailData;
 import com.example.demo.model.Phone;
 import com.example.demo.model.User;
 import com.example.demo.repository.AccountRepository;
 import com.example.demo.repository.EmailDataRepository;
 import com.example.demo.repository.PhoneRepository;
+import com.example.demo.repository.UserJdbcRepository;
+import com.example.demo.repository.UserProjectionRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.repository.UserSpecifications;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserService {
+    private static final Sort SCROLL_ORDER = Sort.by("name", "id");
+    static final int MAX_BATCH_SIZE = 100;
+    static final int MAX_SCROLL_SIZE = 100;
+
     private final UserRepository repository;
     private final EmailDataRepository emailDataRepository;
     private final PhoneRepository phoneRepository;
     private final AccountRepository accountRepository;
-    private final UserMapper mapper;
+    private final UserProjectionRepository projectionRepository;
+    private final UserSearchProperties searchProperties;
+    private final UserSearchCache searchCache;
+    private final UserJdbcRepository jdbcRepository;
+    private final CacheManager cacheManager;
 
     /**
-     * Получение пользователя по ID с кэшированием
+     * Получение пользователя по ID с кэшированием; одновременные промахи по одному id выполняют
+     * один запрос (sync, см. TwoLevelCache)
      */
-    @Cacheable(value = "users", key = "#id")
+    @Cacheable(value = "users", key = "#id", sync = true)
     public UserDTO getUserById(Long id) {
         log.info("Fetching user with id {}", id);
-        return repository.findById(id)
-                .map(mapper::toDto)
+        return projectionRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + id));
     }
 
     /**
-     * Поиск пользователей с фильтрацией и пагинацией
+     * Пользователи по списку id в порядке запроса без повторов; неизвестные id пропускаются.
+     * Кэш users читается одним запросом к Redis, отсутствующие в нём пользователи загружаются
+     * одним запросом к БД и сохраняются в кэш (BatchCache)
+     */
+    public List<UserDTO> getUsersByIds(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinctIds.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " user ids per request");
+        }
+        log.info("Fetching {} users by id", distinctIds.size());
+        Function<Collection<Long>, Map<Long, UserDTO>> loader = missing -> jdbcRepository.findAllById(missing).stream()
+                .collect(Collectors.toMap(UserDTO::id, Function.identity()));
+        Map<Long, UserDTO> users = cacheManager.getCache("users") instanceof BatchCache cache
+                ? cache.getAll(distinctIds, loader)
+                : loader.apply(distinctIds);
+        return distinctIds.stream().map(users::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Поиск пользователей по любому набору фильтров с пагинацией; незаданные фильтры не учитываются.
+     * Границы диапазона даты рождения включаются. Результаты кэшируются до изменения данных пользователей
+     */
+    public Page<UserDTO> searchUsers(String name, String dateOfBirth, String dateOfBirthFrom, String dateOfBirthTo,
+                                     String phone, String email, Pageable pageable) {
+        log.info("Searching users with filters: name={}, dateOfBirth={}, dateOfBirthFrom={}, dateOfBirthTo={}, phone={}, email={}",
+                name, dateOfBirth, dateOfBirthFrom, dateOfBirthTo, phone, email);
+        Specification<User> spec = UserSpecifications.search(name, dateOfBirth, phone, email)
+                .and(UserSpecifications.bornBetween(dateOfBirthFrom, dateOfBirthTo));
+        return searchCache.get(pageable, () -> projectionRepository.findAll(spec, pageable),
+                NameMatch.PREFIX, name, dateOfBirth, dateOfBirthFrom, dateOfBirthTo, phone, email);
+    }
+
+    /**
+     * Нечёткий поиск по имени: без учёта регистра, с опечатками и по любой части имени. Результаты
+     * упорядочены по убыванию сходства; остальные фильтры применяются как в searchUsers
+     */
+    public Page<UserDTO> searchUsersBySimilarity(String name, String dateOfBirth, String dateOfBirthFrom, String dateOfBirthTo,
+                                                 String phone, String email, Pageable pageable) {
+        log.info("Fuzzy searching users with filters: name={}, dateOfBirth={}, dateOfBirthFrom={}, dateOfBirthTo={}, phone={}, email={}",
+                name, dateOfBirth, dateOfBirthFrom, dateOfBirthTo, phone, email);
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Name is required for fuzzy search");
+        }
+        Specification<User> spec = UserSpecifications.search(null, dateOfBirth, phone, email)
+                .and(UserSpecifications.bornBetween(dateOfBirthFrom, dateOfBirthTo));
+        return searchCache.get(pageable, () -> projectionRepository.findSimilar(spec, name, searchProperties.similarityThreshold(), pageable),
+                NameMatch.FUZZY, name, dateOfBirth, dateOfBirthFrom, dateOfBirthTo, phone, email);
+    }
+
+    /**
+     * Поиск с пагинацией по курсору: страница начинается сразу после пользователя, закодированного
+     * в after, поэтому стоимость не зависит от глубины, а общее количество не считается
      */
-    @Cacheable(value = "userSearch", key = "{#name, #dateOfBirth, #phone, #email, #pageable.pageNumber, #pageable.pageSize}")
-    public Page<UserDTO> searchUsers(String name, String dateOfBirth, String phone, String email, Pageable pageable) {
-        log.info("Searching users with filters: name={}, dateOfBirth={}, phone={}, email={}", name, dateOfBirth, phone, email);
-        Page<User> userPage;
-        if (phone != null) {
-            userPage = repository.findByPhones_Phone(phone, pageable);
-        } else if (email != null) {
-            userPage = repository.findByEmails_Email(email, pageable);
-        } else {
-            userPage = repository.findByNameStartingWithAndDateOfBirth(
-                    name != null ? name : "",
-                    dateOfBirth != null ? dateOfBirth : "00.00.0000",
-                    pageable
-            );
+    public UserSliceDTO scrollUsers(String name, String dateOfBirth, String phone, String email, String after, int size) {
+        log.info("Scrolling users with filters: name={}, dateOfBirth={}, phone={}, email={}, after={}", name, dateOfBirth, phone, email, after);
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_SCROLL_SIZE);
+        }
+        Specification<User> spec = UserSpecifications.search(name, dateOfBirth, phone, email);
+        if (after != null) {
+            Cursor cursor = Cursor.decode(after);
+            spec = spec.and(UserSpecifications.after(cursor.name(), cursor.id()));
         }
-        return userPage.map(mapper::toDto);
+        // Лишняя строка показывает, есть ли следующая страница
+        List<UserDTO> users = projectionRepository.findAll(spec, SCROLL_ORDER, 0, size + 1);
+        boolean hasNext = users.size() > size;
+        List<UserDTO> page = hasNext ? users.subList(0, size) : users;
+        return new UserSliceDTO(page, hasNext ? Cursor.of(page.getLast()).encode() : null);
     }
 
     @Transactional
@@ -75,6 +151,7 @@ public class UserService {
         emailData.setUser(user);
         user.getEmails().add(emailData);
         repository.save(user);
+        searchCache.invalidate();
     }
 
     /**
@@ -90,6 +167,7 @@ public class UserService {
         }
         user.getEmails().removeIf(e -> e.getEmail().equals(email));
         repository.save(user);
+        searchCache.invalidate();
     }
 
     /**
@@ -109,6 +187,7 @@ public class UserService {
                 .orElseThrow(() -> new IllegalArgumentException("Email not found: " + oldEmail))
                 .setEmail(newEmail);
         repository.save(user);
+        searchCache.invalidate();
     }
 
     /**
@@ -127,6 +206,7 @@ public class UserService {
         phoneData.setUser(user);
         user.getPhones().add(phoneData);
         repository.save(user);
+        searchCache.invalidate();
     }
 
     /**
@@ -142,6 +222,7 @@ public class UserService {
         }
         user.getPhones().removeIf(p -> p.getPhone().equals(phone));
         repository.save(user);
+        searchCache.invalidate();
     }
 
     /**
@@ -161,10 +242,35 @@ public class UserService {
                 .orElseThrow(() -> new IllegalArgumentException("Phone not found: " + oldPhone))
                 .setPhone(newPhone);
         repository.save(user);
+        searchCache.invalidate();
     }
 
     private User findById(Long id) {
         return repository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + id));
     }
-}
\ No newline at end of file
+
+    /**
+     * Курсор непрозрачен для клиента: это id и имя последнего пользователя страницы в base64url
+     */
+    private record Cursor(long id, String name) {
+
+        static Cursor of(UserDTO user) {
+            return new Cursor(user.id(), user.name());
+        }
+
+        static Cursor decode(String value) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf(':');
+                return new Cursor(Long.parseLong(decoded.substring(0, separator)), decoded.substring(separator + 1));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + value);
+            }
+        }
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString((id + ":" + name).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
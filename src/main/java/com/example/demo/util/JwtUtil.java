@@ -11,7 +11,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 @Component
 public class JwtUtil {
@@ -32,21 +34,45 @@ public class JwtUtil {
         }
     }
 
+    private static final String ROLES_CLAIM = "roles";
+
     public String generateToken(Long userId) {
+        return generateToken(userId, List.of());
+    }
+
+    /**
+     * Токен пользователя с ролями без префикса ROLE_, например ADMIN
+     */
+    public String generateToken(Long userId, Collection<String> roles) {
         return Jwts.builder()
                 .setSubject(userId.toString())
+                .claim(ROLES_CLAIM, List.copyOf(roles))
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 10)) // 10 hours
                 .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)), SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    public Long extractUserId(String token) {
-        Claims claims = Jwts.parserBuilder()
+    /**
+     * Проверяет подпись и срок действия токена
+     */
+    public Claims extractClaims(String token) {
+        return Jwts.parserBuilder()
                 .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
                 .build()
                 .parseClaimsJws(token)
                 .getBody();
+    }
+
+    public static Long userId(Claims claims) {
         return Long.valueOf(claims.getSubject());
     }
+
+    /**
+     * Роли из токена; у токенов, выданных без ролей, список пуст
+     */
+    public static List<String> roles(Claims claims) {
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        return roles == null ? List.of() : roles.stream().map(String::valueOf).toList();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,2 @@
+-- Keyset pagination of user search: ORDER BY name, id starting right after the cursor row
+CREATE INDEX users_name_id_idx ON users (name, id);
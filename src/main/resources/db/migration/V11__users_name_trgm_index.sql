@@ -0,0 +1,4 @@
+-- Fuzzy name search (UserSpecifications.nameSimilarTo): the % operator of pg_trgm is case-insensitive,
+-- tolerates typos and matches anywhere in the name, and the GIN index serves it instead of a full scan
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX users_name_trgm_idx ON users USING gin (name gin_trgm_ops);
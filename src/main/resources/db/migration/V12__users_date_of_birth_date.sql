@@ -0,0 +1,5 @@
+-- date_of_birth as DATE instead of a dd.MM.yyyy string: ranges and ordering by date, and the btree
+-- indexes from V9 (users_date_of_birth_idx, users_name_pattern_dob_idx) are rebuilt over the date
+-- values. The entity keeps the dd.MM.yyyy format through DateOfBirthConverter
+ALTER TABLE users DROP CONSTRAINT users_date_of_birth_check;
+ALTER TABLE users ALTER COLUMN date_of_birth TYPE DATE USING to_date(date_of_birth, 'DD.MM.YYYY');
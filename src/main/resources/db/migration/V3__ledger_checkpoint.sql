@@ -0,0 +1,7 @@
+-- Checkpoint of the in-memory transfer engine: journal records up to last_sequence are already in accounts
+CREATE TABLE ledger_checkpoint (
+    id SMALLINT PRIMARY KEY CHECK (id = 1),
+    last_sequence BIGINT NOT NULL
+);
+
+INSERT INTO ledger_checkpoint (id, last_sequence) VALUES (1, 0);
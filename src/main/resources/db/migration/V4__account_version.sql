@@ -0,0 +1,2 @@
+-- Version column for optimistic locking of accounts
+ALTER TABLE accounts ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
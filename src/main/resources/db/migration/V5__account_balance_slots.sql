@@ -0,0 +1,11 @@
+-- Sharded sub-balances: credits to an account with balance_slots > 0 go to a random slot,
+-- its full balance is accounts.balance plus the sum of its slots
+ALTER TABLE accounts ADD COLUMN balance_slots INTEGER NOT NULL DEFAULT 0 CHECK (balance_slots BETWEEN 0 AND 64);
+
+CREATE TABLE account_balance_slots (
+    account_id BIGINT NOT NULL,
+    slot SMALLINT NOT NULL,
+    balance DECIMAL(19, 2) NOT NULL DEFAULT 0 CHECK (balance >= 0),
+    PRIMARY KEY (account_id, slot),
+    FOREIGN KEY (account_id) REFERENCES accounts(id) ON DELETE CASCADE
+) WITH (fillfactor = 70);
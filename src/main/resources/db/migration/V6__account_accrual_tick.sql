@@ -0,0 +1,3 @@
+-- Number of the last accrual tick (30-second period since the epoch) applied to the account,
+-- so a restarted or concurrent accrual run never applies the same tick twice
+ALTER TABLE accounts ADD COLUMN last_accrued_tick BIGINT NOT NULL DEFAULT 0;
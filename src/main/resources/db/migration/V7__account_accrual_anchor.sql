@@ -0,0 +1,5 @@
+-- last_accrued_tick becomes the accrual anchor: the balance already includes interest for all ticks
+-- up to and including it. Lazy accrual computes interest from the anchor, so existing accounts
+-- start from the current tick instead of the epoch, and new accounts get the tick they were created in
+UPDATE accounts SET last_accrued_tick = floor(extract(epoch FROM now()) / 30) WHERE last_accrued_tick = 0;
+ALTER TABLE accounts ALTER COLUMN last_accrued_tick SET DEFAULT floor(extract(epoch FROM now()) / 30);
@@ -0,0 +1,9 @@
+-- Accounts that reached the interest cap (207% of the initial deposit). The flag is maintained by
+-- Postgres itself, so a transfer that takes a capped balance below the cap puts the account back
+-- into the growing set. Only updates that flip the flag touch the partial index; ordinary balance
+-- changes stay HOT, which would not be the case with balance in the index predicate
+ALTER TABLE accounts ADD COLUMN capped BOOLEAN NOT NULL
+    GENERATED ALWAYS AS (balance >= ROUND(initial_deposit * 2.07, 2)) STORED;
+
+-- Accrual walks only the accounts that still grow
+CREATE INDEX accounts_growing_idx ON accounts (id) WHERE NOT capped;
@@ -0,0 +1,7 @@
+-- Indexes for UserSpecifications: name prefix (LIKE 'abc%' works with varchar_pattern_ops under any
+-- collation) together with date of birth, date of birth alone, and the owner side of emails and phones.
+-- email_data.email and phone_data.phone are already covered by their unique constraints
+CREATE INDEX users_name_pattern_dob_idx ON users (name varchar_pattern_ops, date_of_birth);
+CREATE INDEX users_date_of_birth_idx ON users (date_of_birth);
+CREATE INDEX email_data_user_id_idx ON email_data (user_id);
+CREATE INDEX phone_data_user_id_idx ON phone_data (user_id);
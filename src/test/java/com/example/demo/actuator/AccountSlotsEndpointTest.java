@@ -0,0 +1,85 @@
+package com.example.demo.actuator;
+
+import com.example.demo.dto.LoginRequestDTO;
+import com.example.demo.util.JwtUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"balance.scheduler.enabled=false", "security.admin.user-ids=1"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AccountSlotsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        token = jwtUtil.generateToken(2L); // Jane Smith, не администратор
+    }
+
+    @Test
+    void slots_userToken_forbidden() throws Exception {
+        mockMvc.perform(get("/actuator/accountslots/{userId}", 2L)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void setSlots_userToken_forbidden() throws Exception {
+        mockMvc.perform(post("/actuator/accountslots/{userId}", 2L)
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"slots\": 4}"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void slots_loginTokenOfAdmin_success() throws Exception {
+        // John Doe (id 1) указан в security.admin.user-ids
+        mockMvc.perform(get("/actuator/accountslots/{userId}", 3L)
+                        .header("Authorization", "Bearer " + login("john.doe@example.com")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(3));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void slots_admin_success() throws Exception {
+        mockMvc.perform(get("/actuator/accountslots/{userId}", 2L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(2));
+    }
+
+    private String login(String email) throws Exception {
+        String response = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequestDTO(email, null, "password123"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode body = objectMapper.readTree(response);
+        return body.get("token").asText();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.cache;
+
+import com.example.demo.dto.UserDTO;
+import com.example.demo.service.UserSearchCache.CachedPage;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryCacheSerializerTest {
+
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+    private final UserDtoCodec userCodec = new UserDtoCodec();
+    private final List<CacheValueCodec<?>> codecs = List.of(userCodec, new CachedPageCodec(userCodec));
+    private final BinaryCacheSerializer serializer = new BinaryCacheSerializer(codecs, json, true, 1024);
+
+    @Test
+    void userDto_roundTrip_isSmallerThanJson() {
+        // Arrange
+        UserDTO user = new UserDTO(1L, "John Doe", "15.05.1990", List.of("john.doe@example.com"), List.of("71234567890"));
+
+        // Act
+        byte[] bytes = serializer.serialize(user);
+
+        // Assert
+        assertEquals(BinaryCacheSerializer.MAGIC, bytes[0]);
+        assertEquals(user, serializer.deserialize(bytes));
+        assertTrue(bytes.length * 3 < json.serialize(user).length, bytes.length + " bytes");
+    }
+
+    @Test
+    void userDto_withNullsAndTextDate_roundTrip() {
+        UserDTO user = new UserDTO(null, null, "not a date", null, List.of());
+        UserDTO beforeEpoch = new UserDTO(Long.MAX_VALUE, "Имя", "01.01.1900", List.of(), List.of());
+
+        assertEquals(user, serializer.deserialize(serializer.serialize(user)));
+        assertEquals(beforeEpoch, serializer.deserialize(serializer.serialize(beforeEpoch)));
+    }
+
+    @Test
+    void cachedPage_aboveThreshold_isCompressed() {
+        // Arrange
+        CachedPage page = page(50);
+
+        // Act
+        byte[] bytes = serializer.serialize(page);
+
+        // Assert
+        assertEquals(1, bytes[2]);
+        assertEquals(page, serializer.deserialize(bytes));
+        assertEquals(page(1), serializer.deserialize(serializer.serialize(page(1))));
+    }
+
+    @Test
+    void refreshableValue_roundTrip_keepsComputeTimeAndExpiry() {
+        // Arrange
+        RefreshableValue user = new RefreshableValue(page(1).content().getFirst(), 12, 1_700_000_000_000L);
+        RefreshableValue largePage = new RefreshableValue(page(50), 250, Long.MAX_VALUE);
+
+        // Act
+        byte[] largePageBytes = serializer.serialize(largePage);
+
+        // Assert
+        assertEquals(user, serializer.deserialize(serializer.serialize(user)));
+        assertEquals(largePage, serializer.deserialize(largePageBytes));
+        assertEquals(3, largePageBytes[2]);
+    }
+
+    @Test
+    void deserialize_recordOfPreviousFormatVersion_isRead() {
+        byte[] bytes = serializer.serialize(page(1));
+        bytes[1] = 1;
+        assertEquals(page(1), serializer.deserialize(bytes));
+    }
+
+    @Test
+    void deserialize_jsonEntryOfPreviousFormat_isReadThroughFallback() {
+        UserDTO user = new UserDTO(2L, "Jane Smith", "22.03.1985", List.of(), List.of());
+        assertEquals(user, serializer.deserialize(json.serialize(user)));
+    }
+
+    @Test
+    void deserialize_binaryEntry_whenWritingJson_isStillRead() {
+        // Arrange: узел после отката на JSON читает двоичные записи
+        BinaryCacheSerializer jsonWriter = new BinaryCacheSerializer(codecs, json, false, 1024);
+        UserDTO user = new UserDTO(3L, "Alice Johnson", "10.11.1995", List.of(), List.of());
+
+        // Act & Assert
+        assertEquals('{', jsonWriter.serialize(user)[0]);
+        assertEquals(user, jsonWriter.deserialize(serializer.serialize(user)));
+        RefreshableValue refreshable = new RefreshableValue(page(2), 7, 1_700_000_000_000L);
+        assertEquals(refreshable, jsonWriter.deserialize(jsonWriter.serialize(refreshable)));
+    }
+
+    @Test
+    void deserialize_newerFormatVersion_isCacheMiss() {
+        byte[] bytes = serializer.serialize(page(1));
+        bytes[1] = BinaryCacheSerializer.VERSION + 1;
+        assertNull(serializer.deserialize(bytes));
+    }
+
+    @Test
+    void deserialize_formatVersionAbove127_isCacheMiss() {
+        byte[] bytes = serializer.serialize(page(1));
+        bytes[1] = (byte) 0x80;
+        assertNull(serializer.deserialize(bytes));
+    }
+
+    @Test
+    void serialize_bodyNotShrunkByCompression_isStoredRaw() {
+        // Arrange: любое тело выше порога, но сжатие короткого тела его не уменьшает
+        BinaryCacheSerializer compressingAll = new BinaryCacheSerializer(codecs, json, true, 1);
+        UserDTO user = new UserDTO(1L, "J", "15.05.1990", List.of(), List.of());
+
+        // Act
+        byte[] bytes = compressingAll.serialize(user);
+
+        // Assert
+        assertEquals(0, bytes[2]);
+        assertEquals(serializer.serialize(user).length, bytes.length);
+        assertEquals(user, compressingAll.deserialize(bytes));
+    }
+
+    @Test
+    void serialize_typeWithoutCodec_usesJson() {
+        assertEquals("value", serializer.deserialize(serializer.serialize("value")));
+        assertEquals('"', serializer.serialize("value")[0]);
+    }
+
+    private static CachedPage page(int size) {
+        List<UserDTO> users = LongStream.rangeClosed(1, size)
+                .mapToObj(id -> new UserDTO(id, "User " + id, "01.01.1990", List.of("user" + id + "@example.com"),
+                        List.of("7" + (9_000_000_000L + id))))
+                .toList();
+        return new CachedPage(users, size * 10L);
+    }
+}
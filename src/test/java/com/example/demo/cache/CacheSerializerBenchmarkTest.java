@@ -0,0 +1,76 @@
+package com.example.demo.cache;
+
+import com.example.demo.dto.UserDTO;
+import com.example.demo.service.UserSearchCache.CachedPage;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Размер и время кодирования/декодирования значений кэша: двоичный формат против прежнего JSON.
+ * Запуск: mvn test -Dtest=CacheSerializerBenchmarkTest -Dbenchmark=true
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CacheSerializerBenchmarkTest {
+
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(2);
+
+    @Test
+    void sizeAndSpeed() {
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+        UserDtoCodec userCodec = new UserDtoCodec();
+        List<CacheValueCodec<?>> codecs = List.of(userCodec, new CachedPageCodec(userCodec));
+        BinaryCacheSerializer binary = new BinaryCacheSerializer(codecs, json, true, Integer.MAX_VALUE);
+        BinaryCacheSerializer deflated = new BinaryCacheSerializer(codecs, json, true, 0);
+        UserDTO user = new UserDTO(123_456L, "John Doe", "15.05.1990",
+                List.of("john.doe@example.com", "j.doe@work.example.com"), List.of("71234567890"));
+        List<UserDTO> users = LongStream.rangeClosed(1, 20)
+                .mapToObj(id -> new UserDTO(100_000 + id, "User Name " + id, "01.01.1990",
+                        List.of("user" + id + "@example.com"), List.of("7" + (9_000_000_000L + id))))
+                .toList();
+        CachedPage page = new CachedPage(users, 12_345);
+
+        measure("UserDTO", "json", json, user);
+        measure("UserDTO", "binary", binary, user);
+        measure("UserDTO", "binary+deflate", deflated, user);
+        measure("CachedPage(20)", "json", json, page);
+        measure("CachedPage(20)", "binary", binary, page);
+        measure("CachedPage(20)", "binary+deflate", deflated, page);
+    }
+
+    private static void measure(String type, String format, RedisSerializer<Object> serializer, Object value) {
+        byte[] bytes = serializer.serialize(value);
+        long[] sink = {0};
+        repeat(WARMUP, () -> sink[0] += serializer.serialize(value).length + (serializer.deserialize(bytes) != null ? 1 : 0));
+        long encodeNanos = repeat(MEASUREMENT, () -> sink[0] += serializer.serialize(value).length);
+        long decodeNanos = repeat(MEASUREMENT, () -> sink[0] += serializer.deserialize(bytes) != null ? 1 : 0);
+        log.info("{} as {}: {} bytes, encode {} ns, decode {} ns (checksum {})",
+                type, format, bytes.length, encodeNanos, decodeNanos, sink[0]);
+    }
+
+    /**
+     * Выполняет operation в течение duration и возвращает среднее время одного выполнения в наносекундах
+     */
+    private static long repeat(Duration duration, Runnable operation) {
+        long started = System.nanoTime();
+        long deadline = started + duration.toNanos();
+        long iterations = 0;
+        long now;
+        do {
+            for (int i = 0; i < 1_000; i++) {
+                operation.run();
+            }
+            iterations += 1_000;
+            now = System.nanoTime();
+        } while (now < deadline);
+        return (now - started) / iterations;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.cache;
+
+import com.example.demo.config.CacheRefreshProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EarlyRefreshTest {
+
+    private final EarlyRefresh earlyRefresh = new EarlyRefresh("test", new CacheRefreshProperties(true, 1.0),
+            new SimpleMeterRegistry());
+
+    @Test
+    void isDue_expiredEntry_always() {
+        assertTrue(earlyRefresh.isDue(new RefreshableValue("value", 5, System.currentTimeMillis() - 1)));
+    }
+
+    @Test
+    void isDue_farFromExpiry_never() {
+        RefreshableValue entry = RefreshableValue.of("value", TimeUnit.MILLISECONDS.toNanos(5), Duration.ofHours(1));
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(earlyRefresh.isDue(entry));
+        }
+    }
+
+    @Test
+    void isDue_closeToExpiry_sometimes() {
+        // До истечения столько же, сколько длилось вычисление: вероятность обновления e^-1
+        RefreshableValue entry = new RefreshableValue("value", 60_000, System.currentTimeMillis() + 60_000);
+        int due = 0;
+        for (int i = 0; i < 10_000; i++) {
+            due += earlyRefresh.isDue(entry) ? 1 : 0;
+        }
+        assertTrue(due > 2_000 && due < 5_500, "due " + due);
+    }
+
+    @Test
+    void isDue_plainValueOrDisabled_never() {
+        EarlyRefresh disabled = new EarlyRefresh("test", new CacheRefreshProperties(false, 1.0), new SimpleMeterRegistry());
+        RefreshableValue expired = new RefreshableValue("value", 5, 0);
+
+        assertFalse(earlyRefresh.isDue("value"));
+        assertFalse(earlyRefresh.isDue(RefreshableValue.of("value", 5, Duration.ZERO)));
+        assertFalse(disabled.isDue(expired));
+    }
+
+    @Test
+    void refresh_sameKeyInProgress_runsOnce() throws InterruptedException {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        // Act
+        earlyRefresh.refresh("key", () -> {
+            runs.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        earlyRefresh.refresh("key", runs::incrementAndGet);
+        release.countDown();
+
+        // Assert
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+    }
+}
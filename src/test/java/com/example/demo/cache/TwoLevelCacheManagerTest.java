@@ -0,0 +1,360 @@
+package com.example.demo.cache;
+
+import com.example.demo.TestcontainersConfiguration;
+import com.example.demo.config.CacheRefreshProperties;
+import com.example.demo.config.LocalCacheProperties;
+import com.example.demo.dto.UserDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "balance.scheduler.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+class TwoLevelCacheManagerTest {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RedisConnectionFactory connectionFactory;
+
+    @Autowired
+    private RedisCacheConfiguration cacheConfiguration;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private LocalCacheProperties properties;
+
+    @Autowired
+    private CacheRefreshProperties refreshProperties;
+
+    private RedisCacheManager redisCacheManager;
+    private RedisMessageListenerContainer otherNodeContainer;
+    private Cache otherNode;
+    private long key;
+
+    /**
+     * Второй узел со своим L1 над тем же Redis
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        redisCacheManager = RedisCacheManager.builder(connectionFactory).cacheDefaults(cacheConfiguration).build();
+        redisCacheManager.initializeCaches();
+        TwoLevelCacheManager otherManager = new TwoLevelCacheManager(redisCacheManager, properties, refreshProperties,
+                redisTemplate, new SimpleMeterRegistry());
+        otherNodeContainer = new RedisMessageListenerContainer();
+        otherNodeContainer.setConnectionFactory(connectionFactory);
+        otherNodeContainer.addMessageListener(otherManager, new ChannelTopic(properties.channel()));
+        otherNodeContainer.afterPropertiesSet();
+        otherNodeContainer.start();
+        otherNode = otherManager.getCache("users");
+        key = ThreadLocalRandom.current().nextLong(1_000_000, Long.MAX_VALUE);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        otherNodeContainer.destroy();
+    }
+
+    @Test
+    void get_afterFirstRead_servesFromLocalCacheWithoutRedis() {
+        // Arrange
+        Cache cache = cacheManager.getCache("users");
+        UserDTO user = user(key);
+        otherNode.put(key, user);
+        double localHits = localHits();
+
+        // Act: первое чтение из Redis, затем запись в Redis удаляется в обход кэша
+        UserDTO fromRedis = cache.get(key, UserDTO.class);
+        redisTemplate.delete("users::" + key);
+        UserDTO fromLocal = cache.get(key, UserDTO.class);
+
+        // Assert
+        assertInstanceOf(TwoLevelCache.class, cache);
+        assertEquals(user, fromRedis);
+        assertSame(fromRedis, fromLocal);
+        assertEquals(localHits + 1, localHits());
+    }
+
+    @Test
+    void evict_onOneNode_dropsLocalCopyOnOtherNode() throws InterruptedException {
+        // Arrange: оба узла прочитали запись в свой L1
+        Cache cache = cacheManager.getCache("users");
+        cache.put(key, user(key));
+        assertNotNull(otherNode.get(key));
+
+        // Act
+        cache.evict(key);
+
+        // Assert
+        for (int i = 0; i < 500 && otherNode.get(key) != null; i++) {
+            Thread.sleep(10);
+        }
+        assertNull(otherNode.get(key));
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    void get_concurrentMissesForSameKey_loadOnce() throws Exception {
+        // Arrange: загрузка ждёт, пока к ней присоединятся все остальные вызовы
+        Cache cache = cacheManager.getCache("users");
+        int callers = 8;
+        double coalescedBefore = coalesced();
+        AtomicInteger loads = new AtomicInteger();
+        Callable<UserDTO> loader = () -> {
+            loads.incrementAndGet();
+            for (int i = 0; i < 500 && coalesced() < coalescedBefore + callers - 1; i++) {
+                Thread.sleep(10);
+            }
+            return user(key);
+        };
+
+        // Act
+        List<Future<UserDTO>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> cache.get(key, loader)));
+            }
+        }
+
+        // Assert
+        for (Future<UserDTO> result : results) {
+            assertEquals(user(key), result.get());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(coalescedBefore + callers - 1, coalesced());
+        assertEquals(user(key), otherNode.get(key, UserDTO.class));
+    }
+
+    @Test
+    void get_loaderFailure_isWrappedForCacheAspect() {
+        Cache cache = cacheManager.getCache("users");
+        Cache.ValueRetrievalException e = assertThrows(Cache.ValueRetrievalException.class,
+                () -> cache.get(key, () -> {
+                    throw new IllegalArgumentException("User not found");
+                }));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    void get_entryNearExpiry_servedWhileRefreshedInBackground() throws InterruptedException {
+        // Arrange: запись, срок которой уже подошёл
+        Cache cache = cacheManager.getCache("users");
+        UserDTO stale = user(key);
+        UserDTO fresh = new UserDTO(key, "Refreshed User", "01.01.1990", List.of(), List.of());
+        cache.put(key, new RefreshableValue(stale, 10, System.currentTimeMillis()));
+
+        // Act
+        UserDTO served = cache.get(key, () -> fresh);
+
+        // Assert
+        assertEquals(stale, served);
+        for (int i = 0; i < 500 && !fresh.equals(cache.get(key, UserDTO.class)); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(fresh, cache.get(key, UserDTO.class));
+        assertEquals(fresh, otherNode.get(key, UserDTO.class));
+    }
+
+    @Test
+    void get_afterLoad_storesComputeTimeAndExpiry() {
+        // Act
+        cacheManager.getCache("users").get(key, () -> user(key));
+
+        // Assert: в Redis лежит обёртка, а читатели получают само значение
+        Object stored = redisCacheManager.getCache("users").get(key).get();
+        RefreshableValue entry = assertInstanceOf(RefreshableValue.class, stored);
+        assertEquals(user(key), entry.value());
+        assertTrue(entry.expiresAt() > System.currentTimeMillis() + Duration.ofMinutes(59).toMillis());
+        assertEquals(user(key), otherNode.get(key, UserDTO.class));
+    }
+
+    @Test
+    void getAll_readsHitsFromBothLevels_andLoadsMissesOnce() {
+        // Arrange: key в L1 и Redis, key + 1 только в Redis, key + 2 нигде нет
+        BatchCache cache = (BatchCache) cacheManager.getCache("users");
+        ((Cache) cache).put(key, user(key));
+        otherNode.put(key + 1, user(key + 1));
+        List<List<Long>> loads = new ArrayList<>();
+
+        // Act
+        Map<Long, UserDTO> users = cache.<Long, UserDTO>getAll(List.of(key, key + 1, key + 2, key + 3), missing -> {
+            loads.add(List.copyOf(missing));
+            return Map.of(key + 2, user(key + 2));
+        });
+
+        // Assert: несуществующий key + 3 не сохраняется, загруженный key + 2 виден другому узлу
+        assertEquals(Map.of(key, user(key), key + 1, user(key + 1), key + 2, user(key + 2)), users);
+        assertEquals(List.of(List.of(key + 2, key + 3)), loads);
+        assertEquals(user(key + 2), otherNode.get(key + 2, UserDTO.class));
+        assertInstanceOf(RefreshableValue.class, redisCacheManager.getCache("users").get(key + 2).get());
+        assertNull(otherNode.get(key + 3));
+    }
+
+    @Test
+    void getAll_allHits_doesNotCallLoader() {
+        // Arrange
+        BatchCache cache = (BatchCache) cacheManager.getCache("users");
+        otherNode.put(key, user(key));
+
+        // Act
+        Map<Long, UserDTO> users = cache.<Long, UserDTO>getAll(List.of(key), missing -> fail("Loader called for " + missing));
+
+        // Assert
+        assertEquals(Map.of(key, user(key)), users);
+    }
+
+    @Test
+    void getAll_localLevelDisabled_readsAndFillsRedisInBatch() {
+        // Arrange: узел без L1; key уже в Redis
+        LocalCacheProperties disabled = new LocalCacheProperties(false, properties.cacheNames(), properties.maxEntries(),
+                properties.ttl(), properties.channel());
+        Cache cache = new TwoLevelCacheManager(redisCacheManager, disabled, refreshProperties, redisTemplate,
+                new SimpleMeterRegistry()).getCache("users");
+        BatchCache batch = assertInstanceOf(BatchCache.class, cache);
+        otherNode.put(key, user(key));
+        List<List<Long>> loads = new ArrayList<>();
+
+        // Act
+        Map<Long, UserDTO> first = batch.<Long, UserDTO>getAll(List.of(key, key + 1), missing -> {
+            loads.add(List.copyOf(missing));
+            return Map.of(key + 1, user(key + 1));
+        });
+        Map<Long, UserDTO> second = batch.<Long, UserDTO>getAll(List.of(key, key + 1),
+                missing -> fail("Loader called for " + missing));
+        otherNode.put(key, user(key + 5));
+
+        // Assert: промах загружен один раз и записан в Redis, значение не задерживается в памяти узла
+        assertEquals(Map.of(key, user(key), key + 1, user(key + 1)), first);
+        assertEquals(first, second);
+        assertEquals(List.of(List.of(key + 1)), loads);
+        assertInstanceOf(RefreshableValue.class, redisCacheManager.getCache("users").get(key + 1).get());
+        assertEquals(user(key + 5), cache.get(key, UserDTO.class));
+    }
+
+    @Test
+    void getCache_withoutLocalLevel_returnsRedisCache() {
+        assertFalse(cacheManager.getCache("userSearch") instanceof TwoLevelCache);
+    }
+
+    @Test
+    void localCache_evictsLeastRecentlyRead_andExpiredEntries() throws InterruptedException {
+        // Arrange
+        LocalCache bounded = new LocalCache(2, Duration.ofMinutes(1));
+        LocalCache expiring = new LocalCache(2, Duration.ofMillis(20));
+
+        // Act
+        bounded.put("a", new SimpleValueWrapper(1));
+        bounded.put("b", new SimpleValueWrapper(2));
+        bounded.get("a");
+        bounded.put("c", new SimpleValueWrapper(3));
+        expiring.put("a", new SimpleValueWrapper(1));
+        Thread.sleep(40);
+
+        // Assert
+        assertNotNull(bounded.get("a"));
+        assertNull(bounded.get("b"));
+        assertNotNull(bounded.get("c"));
+        assertNull(expiring.get("a"));
+    }
+
+    @Test
+    void localCache_valueReadBeforeEvict_isNotStored() {
+        // Arrange
+        LocalCache local = new LocalCache(10, Duration.ofMinutes(1));
+        long version = local.version();
+
+        // Act: удаление произошло, пока значение читалось из Redis
+        local.evict("1");
+        local.putIfUnchanged("1", new SimpleValueWrapper("stale"), version);
+
+        // Assert
+        assertNull(local.get("1"));
+    }
+
+    @Test
+    void localCache_evictOfOtherKey_doesNotDropLoad() {
+        // Arrange
+        LocalCache local = new LocalCache(10, Duration.ofMinutes(1));
+        long version = local.version();
+
+        // Act
+        local.evict("2");
+        local.putIfUnchanged("1", new SimpleValueWrapper("fresh"), version);
+        ValueWrapper loaded = local.get("1");
+        local.clear();
+        local.putIfUnchanged("3", new SimpleValueWrapper("stale"), version);
+
+        // Assert: после очистки не сохраняется ни одна загрузка, начатая до неё
+        assertEquals("fresh", loaded.get());
+        assertNull(local.get("3"));
+        assertFalse(local.isUnchanged("1", version));
+        assertTrue(local.isUnchanged("1", local.version()));
+    }
+
+    @Test
+    void localCache_evictedTombstone_stillRejectsStaleLoad() {
+        // Arrange: метка удаления вытесняется из заполненного L1
+        LocalCache local = new LocalCache(1, Duration.ofMinutes(1));
+        long version = local.version();
+        local.evict("1");
+        local.put("2", new SimpleValueWrapper(2));
+
+        // Act
+        local.putIfUnchanged("1", new SimpleValueWrapper("stale"), version);
+
+        // Assert
+        assertNull(local.get("1"));
+        assertNotNull(local.get("2"));
+    }
+
+    private double localHits() {
+        return meterRegistry.get("cache.level.gets").tags("cache", "users", "level", "l1", "result", "hit").timer().count();
+    }
+
+    private double coalesced() {
+        return meterRegistry.get("cache.coalesced").tag("cache", "users").counter().count();
+    }
+
+    private static UserDTO user(long id) {
+        return new UserDTO(id, "Cached User", "01.01.1990", List.of("cached" + id + "@example.com"), List.of());
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.BatchTransferRequestDTO;
 import com.example.demo.dto.TransferRequestDTO;
 import com.example.demo.util.JwtUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -13,8 +14,12 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
+import java.util.List;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -69,4 +74,66 @@ class TransferControllerTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    void transferBatch_success() throws Exception {
+        BatchTransferRequestDTO request = new BatchTransferRequestDTO(List.of(
+                new TransferRequestDTO(2L, new BigDecimal("10.00")),
+                new TransferRequestDTO(999L, new BigDecimal("10.00"))
+        ));
+
+        mockMvc.perform(post("/api/transfer/batch")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("COMPLETED"))
+                .andExpect(jsonPath("$[1].status").value("FAILED"))
+                .andExpect(jsonPath("$[1].message").value("Receiver account not found"));
+    }
+
+    @Test
+    void transferBatch_emptyBatch() throws Exception {
+        BatchTransferRequestDTO request = new BatchTransferRequestDTO(List.of());
+
+        mockMvc.perform(post("/api/transfer/batch")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void transferAsync_acceptedAndStatusAvailable() throws Exception {
+        TransferRequestDTO request = new TransferRequestDTO(2L, new BigDecimal("1.00"));
+
+        String location = mockMvc.perform(post("/api/transfer/async")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.status").value("PENDING"))
+                .andReturn().getResponse().getHeader("Location");
+
+        mockMvc.perform(get(location)
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.toUserId").value(2));
+    }
+
+    @Test
+    void transferStatus_otherUser_notFound() throws Exception {
+        TransferRequestDTO request = new TransferRequestDTO(2L, new BigDecimal("1.00"));
+
+        String location = mockMvc.perform(post("/api/transfer/async")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andReturn().getResponse().getHeader("Location");
+
+        mockMvc.perform(get(location)
+                        .header("Authorization", "Bearer " + jwtUtil.generateToken(2L)))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -4,6 +4,9 @@ import com.example.demo.TestWebConfig;
 import com.example.demo.dto.EmailDTO;
 import com.example.demo.dto.PhoneDTO;
 import com.example.demo.dto.UserDTO;
+import com.example.demo.dto.UserSliceDTO;
+import com.example.demo.dto.ExportFormat;
+import com.example.demo.service.UserExportService;
 import com.example.demo.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -23,12 +26,16 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.OutputStream;
 import java.util.List;
 
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -44,6 +51,9 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private UserExportService exportService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -74,7 +84,7 @@ class UserControllerTest {
     void searchUsers_success() throws Exception {
         // Мокаем ответ от UserService
         Page<UserDTO> userPage = new PageImpl<>(List.of(userDTO), PageRequest.of(0, 10), 1);
-        when(userService.searchUsers(anyString(), anyString(), anyString(), anyString(), any()))
+        when(userService.searchUsers(anyString(), anyString(), any(), any(), anyString(), anyString(), any()))
                 .thenReturn(userPage);
 
         // Выполняем GET-запрос
@@ -85,7 +95,96 @@ class UserControllerTest {
                 .andExpect(status().isOk());
 
         // Проверяем, что метод сервиса был вызван
-        verify(userService).searchUsers("John", "15.05.1990", null, null, PageRequest.of(0, 10));
+        verify(userService).searchUsers("John", "15.05.1990", null, null, null, null, PageRequest.of(0, 10));
+    }
+
+    @Test
+    void searchUsers_fuzzyNameMatch_usesSimilaritySearch() throws Exception {
+        // Мокаем ответ от UserService
+        Page<UserDTO> userPage = new PageImpl<>(List.of(userDTO), PageRequest.of(0, 10), 1);
+        when(userService.searchUsersBySimilarity(any(), any(), any(), any(), any(), any(), any())).thenReturn(userPage);
+
+        // Выполняем GET-запрос
+        mockMvc.perform(get("/api/users")
+                        .param("name", "jon doe")
+                        .param("nameMatch", "fuzzy")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        // Проверяем, что вызван нечёткий поиск
+        verify(userService).searchUsersBySimilarity("jon doe", null, null, null, null, null, PageRequest.of(0, 10));
+    }
+
+    @Test
+    void searchUsers_unknownNameMatch_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/users")
+                        .param("name", "John")
+                        .param("nameMatch", "regex")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void scrollUsers_success() throws Exception {
+        // Мокаем ответ от UserService
+        when(userService.scrollUsers(any(), any(), any(), any(), any(), anyInt()))
+                .thenReturn(new UserSliceDTO(List.of(userDTO), "next-cursor"));
+
+        // Выполняем GET-запрос
+        mockMvc.perform(get("/api/users/scroll")
+                        .param("name", "John")
+                        .param("after", "cursor")
+                        .param("size", "1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id", is(1)))
+                .andExpect(jsonPath("$.next", is("next-cursor")));
+
+        // Проверяем, что метод сервиса был вызван
+        verify(userService).scrollUsers("John", null, null, null, "cursor", 1);
+    }
+
+    @Test
+    void exportUsers_csv_streamsWithContentType() throws Exception {
+        // Мокаем выгрузку
+        when(exportService.export(eq(ExportFormat.CSV), any())).thenAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write("id\r\n1\r\n".getBytes());
+            return 1L;
+        });
+
+        // Выполняем GET-запрос
+        mockMvc.perform(get("/api/users/export").param("format", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=users.csv"))
+                .andExpect(content().string("id\r\n1\r\n"));
+    }
+
+    @Test
+    void exportUsers_unknownFormat_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/users/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getUsersByIds_success() throws Exception {
+        when(userService.getUsersByIds(List.of(1L, 2L))).thenReturn(List.of(userDTO));
+
+        mockMvc.perform(get("/api/users/batch").param("ids", "1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(1)));
+
+        verify(userService).getUsersByIds(List.of(1L, 2L));
+    }
+
+    @Test
+    void getUsersByIds_tooManyIds_returnsBadRequest() throws Exception {
+        when(userService.getUsersByIds(anyList())).thenThrow(new IllegalArgumentException("At most 100 user ids per request"));
+
+        mockMvc.perform(get("/api/users/batch").param("ids", "1,2"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("At most 100 user ids per request")));
     }
 
     @Test
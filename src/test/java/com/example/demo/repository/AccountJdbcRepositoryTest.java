@@ -0,0 +1,65 @@
+package com.example.demo.repository;
+
+import com.example.demo.TestcontainersConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "balance.scheduler.enabled=false")
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+@Transactional // Изменения откатываются после каждого теста
+class AccountJdbcRepositoryTest {
+
+    @Autowired
+    private AccountJdbcRepository accountJdbcRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void cappedAccounts_skippedByAccrual_untilTransferTakesThemBelowCap() {
+        // Arrange
+        long accountId = accountRepository.findByUserId(1L).orElseThrow().getId();
+        jdbcTemplate.update("UPDATE accounts SET balance = ROUND(initial_deposit * 2.07, 2), last_accrued_tick = 0 WHERE id = ?",
+                accountId);
+
+        // Act & Assert
+        assertTrue(accountJdbcRepository.lockDueForAccrual(accountId, accountId, 1).isEmpty());
+        assertFalse(accountJdbcRepository.hasDueForAccrual(accountId, accountId, 1));
+
+        accountJdbcRepository.addToBalances(Map.of(1L, new BigDecimal("-1.00")));
+
+        assertEquals(1, accountJdbcRepository.lockDueForAccrual(accountId, accountId, 1).size());
+        assertEquals(1, accountJdbcRepository.accrue(List.of(accountId), 1));
+        assertTrue(jdbcTemplate.queryForObject("SELECT capped FROM accounts WHERE id = ?", Boolean.class, accountId));
+    }
+
+    @Test
+    void nextChunkEnd_walksOnlyGrowingAccounts() {
+        // Arrange: на потолке все аккаунты, кроме одного
+        long growingId = accountRepository.findByUserId(2L).orElseThrow().getId();
+        jdbcTemplate.update("UPDATE accounts SET balance = ROUND(initial_deposit * 2.07, 2) WHERE id <> ?", growingId);
+        jdbcTemplate.update("UPDATE accounts SET balance = 0 WHERE id = ?", growingId);
+
+        // Act & Assert
+        assertEquals(growingId, accountJdbcRepository.nextChunkEnd(0, 10));
+        assertNull(accountJdbcRepository.nextChunkEnd(growingId, 10));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.demo.repository;
+
+import com.example.demo.TestcontainersConfiguration;
+import com.example.demo.dto.UserDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "balance.scheduler.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+@Transactional // Изменения откатываются после каждого теста
+class UserProjectionRepositoryTest {
+
+    private static final int USERS = 60;
+
+    @Autowired
+    private UserProjectionRepository projectionRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("""
+                INSERT INTO users (name, date_of_birth, password)
+                SELECT 'Projection ' || lpad(g::text, 3, '0'), DATE '1990-01-01', 'password' FROM generate_series(1, ?) g
+                """, USERS);
+        jdbcTemplate.update("""
+                INSERT INTO email_data (user_id, email)
+                SELECT id, 'projection' || id || suffix FROM users, (VALUES ('@a.example.com'), ('@b.example.com')) s(suffix)
+                WHERE name LIKE 'Projection %'
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO phone_data (user_id, phone) SELECT id, '7' || lpad(id::text, 10, '0') FROM users
+                WHERE name LIKE 'Projection %'
+                """);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAll_statementCountDoesNotDependOnPageSize() {
+        // Act
+        Page<UserDTO> small = projectionRepository.findAll(UserSpecifications.nameStartsWith("Projection"),
+                PageRequest.of(0, 5, Sort.by("name")));
+        long smallStatements = statistics.getPrepareStatementCount();
+        statistics.clear();
+        Page<UserDTO> large = projectionRepository.findAll(UserSpecifications.nameStartsWith("Projection"),
+                PageRequest.of(0, 50, Sort.by("name")));
+        long largeStatements = statistics.getPrepareStatementCount();
+
+        // Assert: пользователи, email, телефоны и COUNT
+        assertEquals(5, small.getContent().size());
+        assertEquals(50, large.getContent().size());
+        assertEquals(USERS, large.getTotalElements());
+        assertEquals(4, smallStatements);
+        assertEquals(smallStatements, largeStatements);
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findAll_collectsContactsOfEveryUser() {
+        // Act
+        List<UserDTO> users = projectionRepository.findAll(UserSpecifications.nameStartsWith("Projection"),
+                Sort.by("name"), 0, USERS);
+
+        // Assert
+        assertEquals(USERS, users.size());
+        assertEquals("Projection 001", users.getFirst().name());
+        users.forEach(user -> {
+            assertEquals(List.of("projection" + user.id() + "@a.example.com", "projection" + user.id() + "@b.example.com"),
+                    user.emails());
+            assertEquals(1, user.phones().size());
+        });
+    }
+
+    @Test
+    void findSimilar_ranksBySimilarity_andAppliesThreshold() {
+        // Act
+        Page<UserDTO> loose = projectionRepository.findSimilar(UserSpecifications.search(null, null, null, null),
+                "projection 042", 0.3, PageRequest.of(0, 3));
+        Page<UserDTO> strict = projectionRepository.findSimilar(UserSpecifications.search(null, null, null, null),
+                "jon doe", 0.9, PageRequest.of(0, 3));
+
+        // Assert: совпадение без учёта регистра выше остальных
+        assertEquals("Projection 042", loose.getContent().getFirst().name());
+        assertEquals(3, loose.getContent().size());
+        assertEquals(0, strict.getTotalElements());
+    }
+
+    @Test
+    void findById_loadsUserAndContactsInThreeStatements() {
+        // Act
+        UserDTO user = projectionRepository.findById(1L).orElseThrow();
+
+        // Assert
+        assertEquals("John Doe", user.name());
+        assertEquals("15.05.1990", user.dateOfBirth());
+        assertEquals(List.of("john.doe@example.com"), user.emails());
+        assertEquals(List.of("71234567890"), user.phones());
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findById_unknownUser_returnsEmptyWithoutContactQueries() {
+        assertTrue(projectionRepository.findById(-1L).isEmpty());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.demo.repository;
+
+import com.example.demo.TestcontainersConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Планы запросов, которые строит UserSpecifications. На тестовых данных последовательное
+ * сканирование запрещается, чтобы проверить, что индексы вообще применимы; на большом объёме
+ * планировщик выбирает их сам. Запуск на 10M пользователей:
+ * mvn test -Dtest=UserSearchPlanTest -Dbenchmark=true [-Dsearch.users=10000000]
+ */
+@SpringBootTest(properties = "balance.scheduler.enabled=false")
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+class UserSearchPlanTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void searchQueries_canUseIndexes() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            assertPlans("John", "1990-05-15", "john.doe@example.com", "71234567890");
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void searchQueries_useIndexes_atScale() {
+        int users = Integer.getInteger("search.users", 10_000_000);
+        transactionTemplate.executeWithoutResult(status -> {
+            // Данные вставляются в транзакции и откатываются; ANALYZE допустим внутри транзакции
+            jdbcTemplate.update("""
+                    INSERT INTO users (name, date_of_birth, password)
+                    SELECT 'User ' || g, DATE '1950-01-01' + g % 20000, 'password'
+                    FROM generate_series(1, ?) g
+                    """, users);
+            jdbcTemplate.update("""
+                    INSERT INTO email_data (user_id, email) SELECT id, 'user' || id || '@example.com' FROM users WHERE id > 3
+                    """);
+            jdbcTemplate.update("""
+                    INSERT INTO phone_data (user_id, phone) SELECT id, '7' || lpad(id::text, 10, '0') FROM users WHERE id > 3
+                    """);
+            jdbcTemplate.execute("ANALYZE users, email_data, phone_data");
+            assertPlans("User 4242", "1990-01-01", "user4242@example.com", "70000004242");
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    void fuzzyNameSearch_canUseTrigramIndex() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            assertUsesIndex("users_name_trgm_idx", fuzzySearch("jon doe"));
+            status.setRollbackOnly();
+        });
+    }
+
+    /**
+     * Имена из случайных букв: у «User N» все строки делят одни и те же триграммы, и такой
+     * набор данных показывает худший случай, а не типичный
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void fuzzyNameSearch_fastAtScale() {
+        int users = Integer.getInteger("search.users", 10_000_000);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("""
+                    INSERT INTO users (name, date_of_birth, password)
+                    SELECT initcap(translate(substr(md5(g::text), 1, 7), '0123456789', 'ghijklmnop')) || ' '
+                               || initcap(translate(substr(md5((g + 1)::text), 1, 9), '0123456789', 'qrstuvwxyz')),
+                           DATE '1990-01-01', 'password'
+                    FROM generate_series(1, ?) g
+                    """, users);
+            jdbcTemplate.execute("ANALYZE users");
+            String name = jdbcTemplate.queryForObject("SELECT name FROM users ORDER BY id DESC LIMIT 1", String.class);
+            // Опечатка: последняя буква заменена
+            String query = fuzzySearch(name.substring(0, name.length() - 1).toLowerCase() + "a");
+            assertUsesIndex("users_name_trgm_idx", query);
+            String plan = String.join(" / ", jdbcTemplate.queryForList("EXPLAIN ANALYZE " + query, String.class));
+            double millis = Double.parseDouble(plan.replaceAll(".*Execution Time: ([0-9.]+) ms.*", "$1"));
+            assertTrue(millis < 50, () -> "Fuzzy search took " + millis + " ms: " + plan);
+            status.setRollbackOnly();
+        });
+    }
+
+    private static String fuzzySearch(String name) {
+        return "SELECT * FROM users u WHERE u.name % '" + name + "' ORDER BY similarity(u.name, '" + name + "') DESC, u.id LIMIT 10";
+    }
+
+    private void assertPlans(String namePrefix, String dateOfBirth, String email, String phone) {
+        // Префиксный поиск по имени может идти и по индексу пагинации (name, id)
+        assertUsesIndex("users_name_(pattern_dob|id)_idx",
+                "SELECT * FROM users u WHERE u.name LIKE '" + namePrefix + "%' ESCAPE '\\' LIMIT 10");
+        // Для имени с датой рождения подходят оба индекса, выбор за планировщиком
+        assertUsesIndex("users_(name_pattern_dob|date_of_birth)_idx",
+                "SELECT * FROM users u WHERE u.name LIKE '" + namePrefix + "%' ESCAPE '\\' AND u.date_of_birth = '"
+                        + dateOfBirth + "' LIMIT 10");
+        assertUsesIndex("users_date_of_birth_idx",
+                "SELECT * FROM users u WHERE u.date_of_birth = '" + dateOfBirth + "' LIMIT 10");
+        assertUsesIndex("users_date_of_birth_idx",
+                "SELECT * FROM users u WHERE u.date_of_birth BETWEEN DATE '" + dateOfBirth + "' - 30 AND DATE '" + dateOfBirth
+                        + "' + 30 LIMIT 10");
+        assertUsesIndex("email_data_email_key",
+                "SELECT * FROM users u WHERE u.id IN (SELECT e.user_id FROM email_data e WHERE e.email = '" + email + "') LIMIT 10");
+        assertUsesIndex("phone_data_phone_key",
+                "SELECT * FROM users u WHERE u.id IN (SELECT p.user_id FROM phone_data p WHERE p.phone = '" + phone + "') LIMIT 10");
+        // Следующая страница при пагинации по курсору
+        assertUsesIndex("users_name_id_idx",
+                "SELECT * FROM users u WHERE u.name >= '" + namePrefix + "' AND (u.name > '" + namePrefix + "' OR u.id > 5)"
+                        + " ORDER BY u.name, u.id LIMIT 11");
+        // Загрузка коллекций пользователя
+        assertUsesIndex("email_data_user_id_idx", "SELECT * FROM email_data e WHERE e.user_id = 1");
+        assertUsesIndex("phone_data_user_id_idx", "SELECT * FROM phone_data p WHERE p.user_id = 1");
+    }
+
+    /**
+     * @param index регулярное выражение для имени индекса
+     */
+    private void assertUsesIndex(String index, String sql) {
+        String plan = String.join(" / ", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+        assertTrue(Pattern.compile("(using|on) " + index + "\\b").matcher(plan).find() && !plan.contains("Seq Scan"),
+                () -> "Expected " + index + " in plan of " + sql + ": " + plan);
+    }
+}
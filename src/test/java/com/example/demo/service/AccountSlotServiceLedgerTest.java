@@ -0,0 +1,72 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Account;
+import com.example.demo.repository.AccountJdbcRepository;
+import com.example.demo.repository.AccountRepository;
+import com.example.demo.repository.AccountSlotRepository;
+import com.example.demo.service.AccountSlotService.SlotInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * AccountSlotService в профиле in-memory-ledger
+ */
+@ExtendWith(MockitoExtension.class)
+class AccountSlotServiceLedgerTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private AccountJdbcRepository jdbcRepository;
+
+    @Mock
+    private AccountSlotRepository slotRepository;
+
+    @Mock
+    private AccrualService accrualService;
+
+    @Mock
+    private InMemoryTransferEngine engine;
+
+    private AccountSlotService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AccountSlotService(accountRepository, jdbcRepository, slotRepository, accrualService,
+                Optional.of(engine));
+    }
+
+    @Test
+    void getSlots_inMemoryLedger_readsBalanceFromSequencer() {
+        // Arrange: в accounts ещё не сброшенный баланс
+        Account account = new Account();
+        account.setBalance(new BigDecimal("100.00"));
+        when(accountRepository.findByUserId(1L)).thenReturn(Optional.of(account));
+        when(slotRepository.slotBalance(1L)).thenReturn(BigDecimal.ZERO);
+        when(engine.getBalance(1L)).thenReturn(Optional.of(new BigDecimal("70.00")));
+
+        // Act
+        SlotInfo info = service.getSlots(1L);
+
+        // Assert
+        assertEquals(new BigDecimal("70.00"), info.balance());
+        verifyNoInteractions(accrualService);
+    }
+
+    @Test
+    void setSlots_inMemoryLedger_rejectedWithoutTouchingBalances() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> service.setSlots(1L, 4));
+        verifyNoInteractions(jdbcRepository, slotRepository, accrualService);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.demo.service;
+
+import com.example.demo.TestcontainersConfiguration;
+import com.example.demo.repository.AccountSlotRepository;
+import com.example.demo.service.AccountSlotService.SlotInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "balance.scheduler.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+class AccountSlotServiceTest {
+
+    @Autowired
+    private AccountSlotService accountSlotService;
+
+    @Autowired
+    private AccountSlotRepository accountSlotRepository;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        accountSlotService.setSlots(3L, 0);
+    }
+
+    @Test
+    void shardedAccount_creditsGoToSlots_andDebitsMergeThem() {
+        // Arrange
+        BigDecimal initial = accountSlotService.getSlots(3L).balance();
+        SlotInfo enabled = accountSlotService.setSlots(3L, 4);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            transferService.transfer(1L, 3L, BigDecimal.ONE);
+        }
+        BigDecimal slotBalance = accountSlotRepository.slotBalance(3L);
+        // Больше основного баланса: перевод возможен только вместе со слотами
+        transferService.transfer(3L, 1L, initial.add(new BigDecimal("5")));
+
+        // Assert
+        assertEquals(4, enabled.slots());
+        assertEquals(0, BigDecimal.TEN.compareTo(slotBalance));
+        SlotInfo after = accountSlotService.getSlots(3L);
+        assertEquals(0, new BigDecimal("5").compareTo(after.balance()));
+        assertEquals(0, after.slotBalance().signum());
+
+        transferService.transfer(1L, 3L, initial.subtract(new BigDecimal("5")));
+    }
+
+    @Test
+    void setSlots_disable_movesSlotsToMainBalance() {
+        // Arrange
+        accountSlotService.setSlots(3L, 2);
+        transferService.transfer(1L, 3L, BigDecimal.ONE);
+        BigDecimal total = accountSlotService.getSlots(3L).balance();
+
+        // Act
+        SlotInfo disabled = accountSlotService.setSlots(3L, 0);
+
+        // Assert
+        assertEquals(0, disabled.slots());
+        assertEquals(0, disabled.slotBalance().signum());
+        assertEquals(0, total.compareTo(disabled.balance()));
+
+        transferService.transfer(3L, 1L, BigDecimal.ONE);
+    }
+
+    @Test
+    void drainUnlocked_slotsLockedByTransfer_skippedWithoutWaiting() throws Exception {
+        // Arrange: другая транзакция держит блокировки слотов, как незавершённый перевод
+        accountSlotService.setSlots(3L, 2);
+        transferService.transfer(1L, 3L, BigDecimal.ONE);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread transfer = Thread.ofVirtual().start(() -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("""
+                    SELECT s.slot FROM account_balance_slots s JOIN accounts a ON a.id = s.account_id
+                    WHERE a.user_id = 3 FOR UPDATE OF s
+                    """);
+            locked.countDown();
+            awaitQuietly(release);
+        }));
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+        // Act
+        Map<Long, BigDecimal> drained = new HashMap<>();
+        Set<Long> undrained = new HashSet<>();
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> transactionTemplate.executeWithoutResult(status -> {
+                drained.putAll(accountSlotRepository.drainUnlocked(List.of(3L)));
+                undrained.addAll(accountSlotRepository.withSlotBalance(List.of(3L)));
+                status.setRollbackOnly();
+            }));
+        } finally {
+            release.countDown();
+            transfer.join();
+        }
+
+        // Assert
+        assertTrue(drained.isEmpty());
+        assertEquals(Set.of(3L), undrained);
+
+        transferService.transfer(3L, 1L, BigDecimal.ONE);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void setSlots_outOfRange_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> accountSlotService.setSlots(3L, 65));
+        assertThrows(IllegalArgumentException.class, () -> accountSlotService.setSlots(999L, 2));
+    }
+}
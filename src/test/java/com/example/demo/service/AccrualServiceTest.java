@@ -0,0 +1,183 @@
+package com.example.demo.service;
+
+import com.example.demo.TestcontainersConfiguration;
+import com.example.demo.config.BalanceSchedulerProperties;
+import com.example.demo.config.BalanceSchedulerProperties.Mode;
+import com.example.demo.repository.AccountJdbcRepository;
+import com.example.demo.repository.AccountRepository;
+import com.example.demo.repository.AccountSlotRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "balance.scheduler.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+class AccrualServiceTest {
+
+    private static final int CASES = 200;
+    private static final int TICKS = 30;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountJdbcRepository accountJdbcRepository;
+
+    @Autowired
+    private AccountSlotRepository accountSlotRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Для случайных балансов и депозитов ленивый расчёт на k тиков совпадает с балансом
+     * после k запусков периодического начисления, включая копеечные балансы и балансы выше потолка
+     */
+    @Test
+    void accrue_matchesPeriodicJobTickForTick() {
+        long accountId = accountRepository.findByUserId(1L).orElseThrow().getId();
+        Random random = new Random(42);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < CASES; i++) {
+                BigDecimal deposit = BigDecimal.valueOf(random.nextLong(0, 10_000_000), 2);
+                BigDecimal balance = switch (i % 3) {
+                    case 0 -> BigDecimal.valueOf(random.nextLong(0, 10), 2);
+                    case 1 -> BigDecimal.valueOf(random.nextLong(0, 25_000_000), 2);
+                    default -> deposit.multiply(new BigDecimal("2.07")).add(BigDecimal.ONE).setScale(2, RoundingMode.DOWN);
+                };
+                jdbcTemplate.update("UPDATE accounts SET balance = ?, initial_deposit = ?, last_accrued_tick = 0 WHERE id = ?",
+                        balance, deposit, accountId);
+
+                for (int tick = 1; tick <= TICKS; tick++) {
+                    accountJdbcRepository.accrue(List.of(accountId), tick);
+                    BigDecimal periodic = jdbcTemplate.queryForObject(
+                            "SELECT balance FROM accounts WHERE id = ?", BigDecimal.class, accountId);
+                    assertEquals(0, periodic.compareTo(AccrualService.accrue(balance, deposit, tick)),
+                            "balance " + balance + ", deposit " + deposit + ", tick " + tick);
+                }
+            }
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    void materialize_lazyMode_writesAccruedBalanceAndMovesAnchor() {
+        // Arrange
+        AccrualService lazy = lazyService();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            long anchor = AccrualService.currentTick() - 3;
+            jdbcTemplate.update("UPDATE accounts SET balance = 100.00, initial_deposit = 100.00, last_accrued_tick = ? WHERE user_id = 1",
+                    anchor);
+            BigDecimal effective = lazy.effectiveBalance(accountRepository.findByUserId(1L).orElseThrow(), BigDecimal.ZERO);
+
+            // Act
+            lazy.materialize(List.of(1L, 2L));
+
+            // Assert
+            long tick = jdbcTemplate.queryForObject("SELECT last_accrued_tick FROM accounts WHERE user_id = 1", Long.class);
+            BigDecimal materialized = jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE user_id = 1", BigDecimal.class);
+            assertTrue(tick >= anchor + 3);
+            assertEquals(0, AccrualService.accrue(new BigDecimal("100.00"), new BigDecimal("100.00"), tick - anchor)
+                    .compareTo(materialized));
+            // 100 -> 110 -> 121 -> 133.10, если тик не сменился между чтением и записью
+            assertTrue(new BigDecimal("133.10").compareTo(effective) <= 0);
+            assertTrue(effective.compareTo(materialized) <= 0);
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    void materialize_lazyMode_shardedAccountCappedByBalanceWithSlots() {
+        // Arrange: у обоих аккаунтов депозит 100.00 и потолок 207.00; у второго он уже превышен вместе со слотами
+        AccrualService lazy = lazyService();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            long anchor = AccrualService.currentTick() - 3;
+            jdbcTemplate.update("""
+                    UPDATE accounts SET balance = 100.00, initial_deposit = 100.00, last_accrued_tick = ?
+                    WHERE user_id IN (2, 3)
+                    """, anchor);
+            accountSlotRepository.resize(2L, 2);
+            accountSlotRepository.resize(3L, 2);
+            jdbcTemplate.update("""
+                    UPDATE account_balance_slots s SET balance = CASE a.user_id WHEN 2 THEN 90.00 ELSE 110.00 END
+                    FROM accounts a WHERE a.id = s.account_id AND a.user_id IN (2, 3) AND s.slot = 0
+                    """);
+            BigDecimal nearCap = lazy.effectiveBalance(accountRepository.findByUserId(2L).orElseThrow(),
+                    accountSlotRepository.slotBalance(2L));
+            BigDecimal aboveCap = lazy.effectiveBalance(accountRepository.findByUserId(3L).orElseThrow(),
+                    accountSlotRepository.slotBalance(3L));
+
+            // Act
+            lazy.materialize(List.of(2L, 3L));
+
+            // Assert: 190.00 -> 207.00 за первый же тик, 210.00 не растёт; слоты слиты в основной баланс
+            assertEquals(new BigDecimal("207.00"), nearCap);
+            assertEquals(new BigDecimal("210.00"), aboveCap);
+            assertEquals(new BigDecimal("207.00"), jdbcTemplate.queryForObject(
+                    "SELECT balance FROM accounts WHERE user_id = 2", BigDecimal.class));
+            assertEquals(new BigDecimal("210.00"), jdbcTemplate.queryForObject(
+                    "SELECT balance FROM accounts WHERE user_id = 3", BigDecimal.class));
+            assertEquals(0, accountSlotRepository.slotBalance(2L).signum());
+            assertEquals(0, accountSlotRepository.slotBalance(3L).signum());
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    void materialize_lazyMode_locksAccountsNotBehindToo() {
+        // Arrange: аккаунт 1 отстаёт на тики, аккаунт 2 уже посчитан на текущий тик
+        AccrualService lazy = lazyService();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            long tick = AccrualService.currentTick();
+            jdbcTemplate.update("UPDATE accounts SET last_accrued_tick = ? WHERE user_id = 1", tick - 3);
+            jdbcTemplate.update("UPDATE accounts SET last_accrued_tick = ? WHERE user_id = 2", tick + 1);
+
+            // Act
+            lazy.materialize(List.of(2L, 1L));
+
+            // Assert: строка второго аккаунта уже занята этой транзакцией
+            CompletableFuture<String> sqlState = CompletableFuture.supplyAsync(() -> {
+                try {
+                    transactionTemplate.executeWithoutResult(other -> jdbcTemplate.queryForList(
+                            "SELECT id FROM accounts WHERE user_id = 2 FOR UPDATE NOWAIT"));
+                    return null;
+                } catch (DataAccessException e) {
+                    return e.getCause() instanceof SQLException cause ? cause.getSQLState() : null;
+                }
+            });
+            assertEquals("55P03", sqlState.join()); // lock_not_available
+            status.setRollbackOnly();
+        });
+    }
+
+    private AccrualService lazyService() {
+        return new AccrualService(accountJdbcRepository, accountSlotRepository,
+                new BalanceSchedulerProperties(true, Mode.LAZY, 10000, 1, 1, Duration.ZERO));
+    }
+}
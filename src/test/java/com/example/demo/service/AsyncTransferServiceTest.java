@@ -0,0 +1,123 @@
+package com.example.demo.service;
+
+import com.example.demo.config.AsyncTransferProperties;
+import com.example.demo.dto.TransferStatus;
+import com.example.demo.dto.TransferStatusDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncTransferServiceTest {
+
+    @Mock
+    private TransferService transferService;
+
+    private AsyncTransferService asyncTransferService;
+
+    @AfterEach
+    void tearDown() {
+        asyncTransferService.stop();
+    }
+
+    @Test
+    void submit_success_completesInBackground() throws Exception {
+        // Arrange
+        asyncTransferService = service(10, 100, Duration.ofMinutes(10));
+
+        // Act
+        TransferStatusDTO accepted = asyncTransferService.submit(1L, 2L, BigDecimal.TEN);
+        TransferStatusDTO status = awaitResult(accepted.id(), 1L);
+
+        // Assert
+        assertEquals(TransferStatus.PENDING, accepted.status());
+        assertEquals(TransferStatus.COMPLETED, status.status());
+        verify(transferService).transfer(1L, 2L, BigDecimal.TEN);
+    }
+
+    @Test
+    void submit_transferFails_reportsReason() throws Exception {
+        // Arrange
+        asyncTransferService = service(10, 100, Duration.ofMinutes(10));
+        doThrow(new IllegalArgumentException("Insufficient funds")).when(transferService).transfer(1L, 2L, BigDecimal.TEN);
+
+        // Act
+        TransferStatusDTO status = awaitResult(asyncTransferService.submit(1L, 2L, BigDecimal.TEN).id(), 1L);
+
+        // Assert
+        assertEquals(TransferStatus.FAILED, status.status());
+        assertEquals("Insufficient funds", status.message());
+    }
+
+    @Test
+    void submit_invalidRequest_rejectedSynchronously() {
+        // Arrange
+        asyncTransferService = service(10, 100, Duration.ofMinutes(10));
+        doThrow(new IllegalArgumentException("Cannot transfer to the same user"))
+                .when(transferService).validate(1L, 1L, BigDecimal.TEN);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> asyncTransferService.submit(1L, 1L, BigDecimal.TEN));
+        verify(transferService, never()).transfer(any(), any(), any());
+    }
+
+    @Test
+    void submit_tooManyInFlight_rejected() throws Exception {
+        // Arrange
+        asyncTransferService = service(1, 100, Duration.ofMinutes(10));
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(transferService).transfer(1L, 2L, BigDecimal.TEN);
+        TransferStatusDTO first = asyncTransferService.submit(1L, 2L, BigDecimal.TEN);
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> asyncTransferService.submit(1L, 2L, BigDecimal.TEN));
+        release.countDown();
+        assertEquals(TransferStatus.COMPLETED, awaitResult(first.id(), 1L).status());
+    }
+
+    @Test
+    void getStatus_otherUserEvictedOrExpired_notFound() throws Exception {
+        // Arrange
+        asyncTransferService = service(10, 1, Duration.ofMillis(200));
+        UUID evicted = asyncTransferService.submit(1L, 2L, BigDecimal.TEN).id();
+        UUID latest = asyncTransferService.submit(1L, 3L, BigDecimal.TEN).id();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> asyncTransferService.getStatus(evicted, 1L));
+        assertThrows(IllegalArgumentException.class, () -> asyncTransferService.getStatus(latest, 2L));
+        assertNotNull(asyncTransferService.getStatus(latest, 1L));
+        Thread.sleep(300);
+        assertThrows(IllegalArgumentException.class, () -> asyncTransferService.getStatus(latest, 1L));
+    }
+
+    private TransferStatusDTO awaitResult(UUID id, Long userId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            TransferStatusDTO status = asyncTransferService.getStatus(id, userId);
+            if (status.status() != TransferStatus.PENDING) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Transfer " + id + " is still pending");
+    }
+
+    private AsyncTransferService service(int maxInFlight, int maxEntries, Duration retention) {
+        return new AsyncTransferService(transferService, Optional.empty(),
+                new AsyncTransferProperties(maxInFlight, maxEntries, retention));
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.demo.service;
+
+import com.example.demo.config.BalanceSchedulerProperties;
+import com.example.demo.config.BalanceSchedulerProperties.Mode;
+import com.example.demo.repository.AccountJdbcRepository;
+import com.example.demo.repository.AccountJdbcRepository.AccrualCandidate;
+import com.example.demo.repository.AccountSlotRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceSchedulerTest {
+
+    private static final long TICK = 42;
+
+    @Mock
+    private AccountJdbcRepository accountJdbcRepository;
+
+    @Mock
+    private AccountSlotRepository accountSlotRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private SchedulerLeaderElection leaderElection;
+
+    private BalanceScheduler balanceScheduler;
+
+    @BeforeEach
+    void setUp() {
+        balanceScheduler = new BalanceScheduler(accountJdbcRepository, accountSlotRepository,
+                new TransactionTemplate(transactionManager),
+                new BalanceSchedulerProperties(true, Mode.PERIODIC, 2, 2, 3, Duration.ZERO), leaderElection);
+        // Два чанка: id 1..2 и 3..3
+        lenient().when(accountJdbcRepository.nextChunkEnd(0, 2)).thenReturn(2L);
+        lenient().when(accountJdbcRepository.nextChunkEnd(2, 2)).thenReturn(3L);
+        lenient().when(accountJdbcRepository.nextChunkEnd(3, 2)).thenReturn(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        balanceScheduler.stop();
+    }
+
+    @Test
+    void increaseBalances_eachChunkInOwnTransaction() {
+        // Arrange
+        when(accountJdbcRepository.lockDueForAccrual(1, 2, TICK))
+                .thenReturn(List.of(new AccrualCandidate(1, 11, false), new AccrualCandidate(2, 12, false)));
+        when(accountJdbcRepository.lockDueForAccrual(3, 3, TICK)).thenReturn(List.of(new AccrualCandidate(3, 13, false)));
+        when(accountJdbcRepository.accrue(List.of(1L, 2L), TICK)).thenReturn(2);
+        when(accountJdbcRepository.accrue(List.of(3L), TICK)).thenReturn(1);
+
+        // Act
+        int updated = balanceScheduler.increaseBalances(TICK);
+
+        // Assert
+        assertEquals(3, updated);
+        verify(transactionManager, times(2)).commit(any());
+        verifyNoInteractions(accountSlotRepository);
+    }
+
+    @Test
+    void increaseBalances_lockedAccounts_pickedUpByNextPass() {
+        // Arrange: в первом проходе аккаунт 2 заблокирован переводом
+        when(accountJdbcRepository.lockDueForAccrual(1, 2, TICK))
+                .thenReturn(List.of(new AccrualCandidate(1, 11, false)))
+                .thenReturn(List.of(new AccrualCandidate(2, 12, false)));
+        when(accountJdbcRepository.lockDueForAccrual(3, 3, TICK)).thenReturn(List.of());
+        when(accountJdbcRepository.hasDueForAccrual(1, 2, TICK)).thenReturn(true, false);
+        when(accountJdbcRepository.hasDueForAccrual(3, 3, TICK)).thenReturn(false);
+        when(accountJdbcRepository.accrue(any(), eq(TICK))).thenReturn(1);
+
+        // Act
+        int updated = balanceScheduler.increaseBalances(TICK);
+
+        // Assert
+        assertEquals(2, updated);
+        verify(accountJdbcRepository).accrue(List.of(1L), TICK);
+        verify(accountJdbcRepository).accrue(List.of(2L), TICK);
+        verify(accountJdbcRepository, times(1)).lockDueForAccrual(3, 3, TICK);
+    }
+
+    @Test
+    void increaseBalances_stillLocked_givesUpAfterMaxPasses() {
+        // Arrange
+        when(accountJdbcRepository.hasDueForAccrual(1, 2, TICK)).thenReturn(true);
+        when(accountJdbcRepository.hasDueForAccrual(3, 3, TICK)).thenReturn(false);
+
+        // Act
+        balanceScheduler.increaseBalances(TICK);
+
+        // Assert
+        verify(accountJdbcRepository, times(3)).lockDueForAccrual(1, 2, TICK);
+        verify(accountJdbcRepository, times(1)).lockDueForAccrual(3, 3, TICK);
+        verify(accountJdbcRepository, never()).accrue(any(), anyLong());
+    }
+
+    @Test
+    void increaseBalances_shardedAccount_mergesSlotsBeforeAccrual() {
+        // Arrange
+        Map<Long, BigDecimal> drained = Map.of(12L, new BigDecimal("50.00"));
+        when(accountJdbcRepository.lockDueForAccrual(1, 2, TICK))
+                .thenReturn(List.of(new AccrualCandidate(1, 11, false), new AccrualCandidate(2, 12, true)));
+        when(accountJdbcRepository.lockDueForAccrual(3, 3, TICK)).thenReturn(List.of());
+        when(accountSlotRepository.drainUnlocked(List.of(12L))).thenReturn(drained);
+
+        // Act
+        balanceScheduler.increaseBalances(TICK);
+
+        // Assert
+        InOrder inOrder = inOrder(accountJdbcRepository);
+        inOrder.verify(accountJdbcRepository).addToBalances(drained);
+        inOrder.verify(accountJdbcRepository).accrue(List.of(1L, 2L), TICK);
+    }
+
+    @Test
+    void increaseBalances_shardedAccountWithLockedSlots_skippedUntilNextPass() {
+        // Arrange: в первом проходе слот аккаунта 12 заблокирован переводом и не слит
+        when(accountJdbcRepository.lockDueForAccrual(1, 2, TICK))
+                .thenReturn(List.of(new AccrualCandidate(1, 11, false), new AccrualCandidate(2, 12, true)))
+                .thenReturn(List.of(new AccrualCandidate(2, 12, true)));
+        when(accountJdbcRepository.lockDueForAccrual(3, 3, TICK)).thenReturn(List.of());
+        when(accountSlotRepository.withSlotBalance(List.of(12L))).thenReturn(Set.of(12L)).thenReturn(Set.of());
+        when(accountJdbcRepository.hasDueForAccrual(1, 2, TICK)).thenReturn(true, false);
+        when(accountJdbcRepository.hasDueForAccrual(3, 3, TICK)).thenReturn(false);
+
+        // Act
+        balanceScheduler.increaseBalances(TICK);
+
+        // Assert
+        InOrder inOrder = inOrder(accountJdbcRepository);
+        inOrder.verify(accountJdbcRepository).accrue(List.of(1L), TICK);
+        inOrder.verify(accountJdbcRepository).accrue(List.of(2L), TICK);
+        verify(accountSlotRepository, never()).drain(any());
+    }
+
+    @Test
+    void increaseBalances_notLeader_skipsTick() {
+        // Arrange
+        when(leaderElection.isLeader()).thenReturn(false);
+
+        // Act
+        int updated = balanceScheduler.increaseBalances();
+
+        // Assert
+        assertEquals(0, updated);
+        assertNull(balanceScheduler.lastTick());
+        verifyNoInteractions(accountJdbcRepository, transactionManager);
+    }
+
+    @Test
+    void increaseBalances_leader_accruesCurrentTick() {
+        // Arrange
+        when(leaderElection.isLeader()).thenReturn(true);
+        long before = AccrualService.currentTick();
+
+        // Act
+        balanceScheduler.increaseBalances();
+
+        // Assert
+        assertTrue(balanceScheduler.lastTick() >= before);
+        verify(accountJdbcRepository).lockDueForAccrual(1, 2, balanceScheduler.lastTick());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo.service;
+
+import com.example.demo.TestcontainersConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Пропускная способность и задержки переводов через in-memory движок; результаты для движков
+ * на БД даёт {@link TransferEngineBenchmarkTest}.
+ * Запуск: mvn test -Dtest=InMemoryLedgerBenchmarkTest -Dbenchmark=true
+ */
+@Slf4j
+@SpringBootTest(properties = "transfer.ledger.journal-path=target/transfer-journal-benchmark.bin")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles({"test", "in-memory-ledger"})
+@Import(TestcontainersConfiguration.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class InMemoryLedgerBenchmarkTest {
+
+    private static final int THREADS = 8;
+    private static final int WARMUP_TRANSFERS = 5_000;
+    private static final int MEASURED_TRANSFERS = 100_000;
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Autowired
+    private TransferService transferService;
+
+    @Test
+    void throughputAndLatency() throws Exception {
+        run(WARMUP_TRANSFERS);
+        long started = System.nanoTime();
+        long[] latencies = run(MEASURED_TRANSFERS);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        Arrays.sort(latencies);
+        log.info("In-memory ledger: {} transfers in {} ms, {} transfers/s, latency p50 {} us, p99 {} us, max {} us",
+                MEASURED_TRANSFERS, elapsed.toMillis(),
+                MEASURED_TRANSFERS * 1_000_000_000L / Math.max(elapsed.toNanos(), 1),
+                percentile(latencies, 0.50) / 1_000, percentile(latencies, 0.99) / 1_000,
+                latencies[latencies.length - 1] / 1_000);
+    }
+
+    /**
+     * Переводы по кругу между тестовыми пользователями 1 -> 2 -> 3 -> 1; возвращает задержку каждого
+     */
+    private long[] run(int transfers) throws Exception {
+        long[] latencies = new long[transfers];
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int i = 0; i < transfers; i++) {
+                int index = i;
+                long from = i % 3 + 1;
+                long to = from % 3 + 1;
+                futures.add(executor.submit(() -> {
+                    long started = System.nanoTime();
+                    transferService.transfer(from, to, AMOUNT);
+                    latencies[index] = System.nanoTime() - started;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * sorted.length))];
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.demo.service;
+
+import com.example.demo.config.LedgerProperties;
+import com.example.demo.dto.TransferResultDTO;
+import com.example.demo.dto.TransferStatus;
+import com.example.demo.repository.AccountJdbcRepository;
+import com.example.demo.repository.AccountJdbcRepository.AccountBalance;
+import com.example.demo.repository.AccountSlotRepository;
+import com.example.demo.repository.LedgerCheckpointRepository;
+import com.example.demo.service.TransferService.TransferCommand;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryTransferEngineTest {
+
+    @Mock
+    private AccountJdbcRepository accountRepository;
+
+    @Mock
+    private AccountSlotRepository slotRepository;
+
+    @Mock
+    private LedgerCheckpointRepository checkpointRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path journalDir;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            Consumer<AccountBalance> consumer = invocation.getArgument(1);
+            consumer.accept(new AccountBalance(1L, new BigDecimal("100.00"), new BigDecimal("100.00")));
+            consumer.accept(new AccountBalance(2L, new BigDecimal("50.00"), new BigDecimal("50.00")));
+            return null;
+        }).when(accountRepository).forEachAccount(anyInt(), any());
+    }
+
+    @Test
+    void transfer_success_flushedOnStop() throws Exception {
+        // Arrange
+        when(checkpointRepository.advance(anyLong())).thenReturn(true);
+        InMemoryTransferEngine engine = engine(Duration.ofHours(1));
+        engine.start();
+
+        // Act
+        List<TransferResultDTO> results = engine.transferAll(List.of(new TransferCommand(1L, 2L, new BigDecimal("30.00"))));
+        Optional<BigDecimal> balance = engine.getBalance(1L);
+        engine.stop();
+
+        // Assert
+        assertEquals(TransferStatus.COMPLETED, results.getFirst().status());
+        assertEquals(Optional.of(new BigDecimal("70.00")), balance);
+        verify(checkpointRepository).advance(1L);
+        verify(accountRepository).setBalances(Map.of(1L, new BigDecimal("70.00"), 2L, new BigDecimal("80.00")));
+    }
+
+    @Test
+    void transfer_insufficientFundsAndUnknownAccounts_failed() throws Exception {
+        // Arrange
+        InMemoryTransferEngine engine = engine(Duration.ofHours(1));
+        engine.start();
+
+        // Act
+        List<TransferResultDTO> results = engine.transferAll(List.of(
+                new TransferCommand(2L, 1L, new BigDecimal("50.01")),
+                new TransferCommand(3L, 1L, BigDecimal.ONE),
+                new TransferCommand(1L, 3L, BigDecimal.ONE),
+                new TransferCommand(1L, 2L, new BigDecimal("0.001"))));
+        engine.stop();
+
+        // Assert
+        assertEquals(List.of("Insufficient funds", "Sender account not found", "Receiver account not found",
+                        "Amount must have at most 2 decimal places"),
+                results.stream().map(TransferResultDTO::message).toList());
+        assertTrue(results.stream().allMatch(r -> r.status() == TransferStatus.FAILED));
+        verify(accountRepository, never()).setBalances(any());
+    }
+
+    @Test
+    void accrual_cappedByInitialDeposit() throws Exception {
+        // Arrange
+        InMemoryTransferEngine engine = engine(Duration.ofMillis(20));
+        engine.start();
+
+        // Act: 100 -> 110 -> 121 -> 133.1 -> ... до 207% от депозита
+        BigDecimal balance = BigDecimal.ZERO;
+        for (int i = 0; i < 500 && balance.compareTo(new BigDecimal("207.00")) < 0; i++) {
+            Thread.sleep(10);
+            balance = engine.getBalance(1L).orElseThrow();
+        }
+        engine.stop();
+
+        // Assert
+        assertEquals(new BigDecimal("207.00"), balance);
+    }
+
+    @Test
+    void accrual_balanceAboveCap_isNotLowered() throws Exception {
+        // Arrange: после перевода у второго аккаунта 130.00 при пределе 103.50
+        InMemoryTransferEngine engine = engine(Duration.ofMillis(20));
+        engine.start();
+        engine.transferAll(List.of(new TransferCommand(1L, 2L, new BigDecimal("80.00"))));
+
+        // Act: ждём, пока первый аккаунт дорастёт до предела
+        BigDecimal balance = BigDecimal.ZERO;
+        for (int i = 0; i < 500 && balance.compareTo(new BigDecimal("207.00")) < 0; i++) {
+            Thread.sleep(10);
+            balance = engine.getBalance(1L).orElseThrow();
+        }
+        Optional<BigDecimal> receiver = engine.getBalance(2L);
+        engine.stop();
+
+        // Assert
+        assertEquals(new BigDecimal("207.00"), balance);
+        assertEquals(Optional.of(new BigDecimal("130.00")), receiver);
+    }
+
+    @Test
+    void transfer_journalFullAndCheckpointFailed_requestNotAppliedPartially() throws Exception {
+        // Arrange: в журнале место под три записи, первый запрос занимает две
+        when(checkpointRepository.advance(anyLong()))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"))
+                .thenReturn(true);
+        InMemoryTransferEngine engine = engine(DataSize.ofBytes(64 + 3 * TransferJournal.RECORD_SIZE), Duration.ofHours(1));
+        engine.start();
+        List<TransferResultDTO> first = engine.transferAll(List.of(
+                new TransferCommand(1L, 2L, new BigDecimal("10.00")),
+                new TransferCommand(1L, 2L, new BigDecimal("10.00"))));
+
+        // Act: второму запросу нужно две записи, и checkpoint перед ним не удаётся
+        List<TransferCommand> second = List.of(
+                new TransferCommand(1L, 2L, new BigDecimal("1.00")),
+                new TransferCommand(1L, 2L, new BigDecimal("1.00")));
+        assertThrows(IllegalStateException.class, () -> engine.transferAll(second));
+        Optional<BigDecimal> afterFailure = engine.getBalance(1L);
+        List<TransferResultDTO> retried = engine.transferAll(second);
+        Optional<BigDecimal> afterRetry = engine.getBalance(1L);
+        engine.stop();
+
+        // Assert
+        assertTrue(first.stream().allMatch(r -> r.status() == TransferStatus.COMPLETED));
+        assertEquals(Optional.of(new BigDecimal("80.00")), afterFailure);
+        assertTrue(retried.stream().allMatch(r -> r.status() == TransferStatus.COMPLETED));
+        assertEquals(Optional.of(new BigDecimal("78.00")), afterRetry);
+    }
+
+    @Test
+    void start_failedCheckpoint_replaysJournal() throws Exception {
+        // Arrange: изменения первого запуска не попали в БД
+        when(checkpointRepository.advance(anyLong()))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"))
+                .thenReturn(true);
+        InMemoryTransferEngine crashed = engine(Duration.ofHours(1));
+        crashed.start();
+        crashed.transferAll(List.of(new TransferCommand(1L, 2L, new BigDecimal("30.00"))));
+        crashed.stop();
+
+        // Act
+        InMemoryTransferEngine restarted = engine(Duration.ofHours(1));
+        restarted.start();
+        Optional<BigDecimal> balance = restarted.getBalance(2L);
+        restarted.stop();
+
+        // Assert
+        assertEquals(Optional.of(new BigDecimal("80.00")), balance);
+        verify(accountRepository, times(1)).setBalances(Map.of(1L, new BigDecimal("70.00"), 2L, new BigDecimal("80.00")));
+    }
+
+    private InMemoryTransferEngine engine(Duration accrualInterval) {
+        return engine(DataSize.ofKilobytes(4), accrualInterval);
+    }
+
+    private InMemoryTransferEngine engine(DataSize journalSize, Duration accrualInterval) {
+        LedgerProperties properties = new LedgerProperties(journalDir.resolve("journal.bin"), journalSize,
+                Duration.ofHours(1), accrualInterval, 100, 10);
+        return new InMemoryTransferEngine(accountRepository, slotRepository, checkpointRepository,
+                new TransactionTemplate(transactionManager), properties);
+    }
+}
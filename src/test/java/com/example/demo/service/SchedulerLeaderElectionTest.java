@@ -0,0 +1,51 @@
+package com.example.demo.service;
+
+import com.example.demo.TestcontainersConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "balance.scheduler.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+class SchedulerLeaderElectionTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void onlyOneNodeLeads_andLeadershipFailsOverAfterResign() {
+        // Arrange: два «узла» на одной базе
+        SchedulerLeaderElection first = new SchedulerLeaderElection(dataSource, jdbcTemplate);
+        SchedulerLeaderElection second = new SchedulerLeaderElection(dataSource, jdbcTemplate);
+
+        try {
+            // Act & Assert
+            assertTrue(first.isLeader());
+            assertFalse(second.isLeader());
+            assertTrue(first.isLeader());
+            assertEquals(first.nodeId(), second.leaderNodeId());
+
+            first.resign();
+
+            assertTrue(second.isLeader());
+            assertFalse(first.isLeader());
+        } finally {
+            first.resign();
+            second.resign();
+        }
+        assertNull(first.leaderNodeId());
+    }
+}
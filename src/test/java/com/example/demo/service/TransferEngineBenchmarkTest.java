@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.example.demo.TestcontainersConfiguration;
+import com.example.demo.config.TransferProperties;
+import com.example.demo.config.TransferProperties.Engine;
+import com.example.demo.config.TransferProperties.GroupCommit;
+import com.example.demo.dto.TransferRequestDTO;
+import com.example.demo.repository.AccountJdbcRepository;
+import com.example.demo.repository.AccountRepository;
+import com.example.demo.repository.AccountSlotRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Сравнение пропускной способности способов перевода.
+ * Запуск: mvn test -Dtest=TransferEngineBenchmarkTest -Dbenchmark=true
+ */
+@Slf4j
+@SpringBootTest(properties = "balance.scheduler.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TransferEngineBenchmarkTest {
+
+    private static final int THREADS = 8;
+    private static final int WARMUP_TRANSFERS = 500;
+    private static final int MEASURED_TRANSFERS = 5_000;
+    private static final int BATCH_SIZE = 1_000;
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountJdbcRepository accountJdbcRepository;
+
+    @Autowired
+    private AccountSlotRepository accountSlotRepository;
+
+    @Autowired
+    private AccrualService accrualService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @ParameterizedTest
+    @EnumSource(Engine.class)
+    void throughput(Engine engine) throws Exception {
+        TransferService service = transferService(engine);
+
+        run(service, WARMUP_TRANSFERS);
+        long started = System.nanoTime();
+        run(service, MEASURED_TRANSFERS);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        log.info("Engine {}: {} transfers in {} ms, {} transfers/s", engine, MEASURED_TRANSFERS,
+                elapsed.toMillis(), MEASURED_TRANSFERS * 1_000_000_000L / Math.max(elapsed.toNanos(), 1));
+    }
+
+    @Test
+    void batchThroughput() {
+        TransferService service = transferService(Engine.ENTITY);
+        List<TransferRequestDTO> batch = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new TransferRequestDTO(i % 2 == 0 ? 1L : 3L, AMOUNT));
+        }
+
+        service.transferBatch(2L, batch);
+        long started = System.nanoTime();
+        for (int i = 0; i < MEASURED_TRANSFERS / BATCH_SIZE; i++) {
+            service.transferBatch(2L, batch);
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        log.info("Batch of {}: {} transfers in {} ms, {} transfers/s", BATCH_SIZE, MEASURED_TRANSFERS,
+                elapsed.toMillis(), MEASURED_TRANSFERS * 1_000_000_000L / Math.max(elapsed.toNanos(), 1));
+    }
+
+    private TransferService transferService(Engine engine) {
+        return new TransferService(accountRepository, accountJdbcRepository, accountSlotRepository, accrualService,
+                transactionTemplate, new TransferProperties(engine, Duration.ofSeconds(2), 10, Duration.ofMillis(5),
+                        BATCH_SIZE, new GroupCommit(false, 100, Duration.ZERO, 100)), meterRegistry, Optional.empty());
+    }
+
+    /**
+     * Переводы по кругу между тестовыми пользователями 1 -> 2 -> 3 -> 1, балансы не истощаются
+     */
+    private void run(TransferService service, int transfers) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int i = 0; i < transfers; i++) {
+                long from = i % 3 + 1;
+                long to = from % 3 + 1;
+                futures.add(executor.submit(() -> service.transfer(from, to, AMOUNT)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+    }
+}
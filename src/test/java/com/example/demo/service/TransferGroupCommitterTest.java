@@ -0,0 +1,135 @@
+package com.example.demo.service;
+
+import com.example.demo.config.TransferProperties;
+import com.example.demo.config.TransferProperties.Engine;
+import com.example.demo.config.TransferProperties.GroupCommit;
+import com.example.demo.dto.TransferResultDTO;
+import com.example.demo.dto.TransferStatus;
+import com.example.demo.service.TransferService.TransferCommand;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferGroupCommitterTest {
+
+    @Mock
+    private TransferService transferService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransferGroupCommitter committer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        TransferProperties properties = new TransferProperties(Engine.ENTITY, Duration.ofSeconds(2), 3,
+                Duration.ZERO, 100, new GroupCommit(true, 10, Duration.ofMillis(200), 100));
+        committer = new TransferGroupCommitter(transferService, properties, meterRegistry);
+        committer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        committer.stop();
+    }
+
+    @Test
+    void transfer_concurrentCallersShareOneCommit() throws Exception {
+        // Arrange
+        when(transferService.transferAll(anyList())).thenAnswer(invocation -> {
+            List<TransferCommand> commands = invocation.getArgument(0);
+            return commands.stream().map(c -> c.result(TransferStatus.COMPLETED, null)).toList();
+        });
+
+        // Act
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(10)) {
+            for (long i = 0; i < 10; i++) {
+                long toUserId = i + 2;
+                futures.add(executor.submit(() -> committer.transfer(1L, toUserId, BigDecimal.TEN)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        // Assert
+        verify(transferService, atMost(2)).transferAll(anyList());
+        assertEquals(10, meterRegistry.summary("transfer.group_commit.batch.size").totalAmount());
+        assertTrue(meterRegistry.timer("transfer.group_commit.commit.latency").count() >= 1);
+    }
+
+    @Test
+    void transfer_failedTransfer_throwsWithReason() {
+        // Arrange
+        when(transferService.transferAll(anyList())).thenReturn(List.of(
+                new TransferResultDTO(2L, BigDecimal.TEN, TransferStatus.FAILED, "Insufficient funds")));
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> committer.transfer(1L, 2L, BigDecimal.TEN));
+        assertEquals("Insufficient funds", exception.getMessage());
+    }
+
+    @Test
+    void transfer_commitFailure_propagatesToCaller() {
+        // Arrange
+        when(transferService.transferAll(anyList())).thenThrow(new IllegalStateException("database is down"));
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> committer.transfer(1L, 2L, BigDecimal.TEN));
+        assertEquals("database is down", exception.getMessage());
+    }
+
+    @Test
+    void stop_commitStuck_failsInFlightCallers() throws Exception {
+        // Arrange: транзакция висит и не реагирует на прерывание
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(transferService.transferAll(anyList())).thenAnswer(invocation -> {
+            committing.countDown();
+            while (true) {
+                try {
+                    release.await();
+                    return List.of();
+                } catch (InterruptedException ignored) {
+                    // как JDBC-драйвер, ожидающий ответа БД
+                }
+            }
+        });
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<?> caller = executor.submit(() -> committer.transfer(1L, 2L, BigDecimal.TEN));
+            assertTrue(committing.await(5, TimeUnit.SECONDS));
+
+            // Act
+            committer.stop();
+
+            // Assert
+            ExecutionException exception = assertThrows(ExecutionException.class, () -> caller.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.demo.service;
+
+import com.example.demo.service.TransferJournal.Entry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferJournalTest {
+
+    private static final long SIZE = 4096;
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void replay_returnsAppendedRecords() throws Exception {
+        // Arrange
+        Path path = dir.resolve("journal.bin");
+        try (TransferJournal journal = new TransferJournal(path, SIZE)) {
+            journal.append(1, TransferJournal.TYPE_TRANSFER, 1, 2, 3000);
+            journal.append(2, TransferJournal.TYPE_ACCRUAL, 0, 0, 0);
+        }
+
+        // Act
+        List<Entry> entries = replay(path);
+
+        // Assert
+        assertEquals(List.of(new Entry(1, TransferJournal.TYPE_TRANSFER, 1, 2, 3000),
+                new Entry(2, TransferJournal.TYPE_ACCRUAL, 0, 0, 0)), entries);
+    }
+
+    @Test
+    void replay_afterReset_ignoresStaleRecords() throws Exception {
+        // Arrange
+        Path path = dir.resolve("journal.bin");
+        try (TransferJournal journal = new TransferJournal(path, SIZE)) {
+            journal.append(1, TransferJournal.TYPE_TRANSFER, 1, 2, 100);
+            journal.append(2, TransferJournal.TYPE_TRANSFER, 1, 2, 200);
+            journal.append(3, TransferJournal.TYPE_TRANSFER, 1, 2, 300);
+            journal.reset();
+            journal.append(4, TransferJournal.TYPE_TRANSFER, 2, 1, 400);
+        }
+
+        // Act
+        List<Entry> entries = replay(path);
+
+        // Assert
+        assertEquals(List.of(new Entry(4, TransferJournal.TYPE_TRANSFER, 2, 1, 400)), entries);
+    }
+
+    @Test
+    void replay_corruptedRecord_stopsBeforeIt() throws Exception {
+        // Arrange
+        Path path = dir.resolve("journal.bin");
+        try (TransferJournal journal = new TransferJournal(path, SIZE)) {
+            journal.append(1, TransferJournal.TYPE_TRANSFER, 1, 2, 100);
+            journal.append(2, TransferJournal.TYPE_TRANSFER, 1, 2, 200);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            // Портим сумму второй записи
+            file.seek(64 + TransferJournal.RECORD_SIZE + 32);
+            file.writeLong(999_999);
+        }
+
+        // Act
+        List<Entry> entries = replay(path);
+
+        // Assert
+        assertEquals(1, entries.size());
+        assertEquals(1, entries.getFirst().sequence());
+    }
+
+    @Test
+    void hasRoom_fullJournal_returnsFalse() throws Exception {
+        // Arrange
+        try (TransferJournal journal = new TransferJournal(dir.resolve("journal.bin"), 64 + 2 * TransferJournal.RECORD_SIZE)) {
+            // Act
+            journal.append(1, TransferJournal.TYPE_TRANSFER, 1, 2, 100);
+            boolean roomAfterFirst = journal.hasRoom(1);
+            boolean roomForTwoAfterFirst = journal.hasRoom(2);
+            journal.append(2, TransferJournal.TYPE_TRANSFER, 1, 2, 100);
+
+            // Assert
+            assertTrue(roomAfterFirst);
+            assertFalse(roomForTwoAfterFirst);
+            assertFalse(journal.hasRoom(1));
+        }
+    }
+
+    private List<Entry> replay(Path path) throws Exception {
+        List<Entry> entries = new ArrayList<>();
+        try (TransferJournal journal = new TransferJournal(path, SIZE)) {
+            journal.replay(entries::add);
+        }
+        return entries;
+    }
+}
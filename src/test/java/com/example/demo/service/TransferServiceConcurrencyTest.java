@@ -0,0 +1,84 @@
+package com.example.demo.service;
+
+import com.example.demo.TestcontainersConfiguration;
+import com.example.demo.model.Account;
+import com.example.demo.repository.AccountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "balance.scheduler.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+class TransferServiceConcurrencyTest {
+
+    private static final List<Long> HOT_USERS = List.of(1L, 2L, 3L);
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 50;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Test
+    void concurrentTransfers_preserveTotalBalance() throws Exception {
+        BigDecimal totalBefore = totalBalance();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger insufficientFunds = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        Long from = HOT_USERS.get(random.nextInt(HOT_USERS.size()));
+                        Long to = HOT_USERS.get(random.nextInt(HOT_USERS.size()));
+                        if (from.equals(to)) {
+                            continue;
+                        }
+                        try {
+                            transferService.transfer(from, to, BigDecimal.valueOf(random.nextInt(1, 100)));
+                            completed.incrementAndGet();
+                        } catch (IllegalArgumentException e) {
+                            assertEquals("Insufficient funds", e.getMessage());
+                            insufficientFunds.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertTrue(completed.get() > 0);
+        assertEquals(0, totalBefore.compareTo(totalBalance()));
+        accountRepository.findAll().forEach(account ->
+                assertTrue(account.getBalance().signum() >= 0, "Negative balance for account " + account.getId()));
+    }
+
+    private BigDecimal totalBalance() {
+        return accountRepository.findAll().stream()
+                .map(Account::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -1,17 +1,34 @@
 package com.example.demo.service;
 
+import com.example.demo.config.TransferProperties;
+import com.example.demo.config.TransferProperties.Engine;
+import com.example.demo.config.TransferProperties.GroupCommit;
+import com.example.demo.dto.TransferRequestDTO;
+import com.example.demo.dto.TransferResultDTO;
+import com.example.demo.dto.TransferStatus;
 import com.example.demo.model.Account;
 import com.example.demo.model.User;
+import com.example.demo.repository.AccountJdbcRepository;
 import com.example.demo.repository.AccountRepository;
+import com.example.demo.repository.AccountSlotRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -23,7 +40,19 @@ class TransferServiceTest {
     @Mock
     private AccountRepository accountRepository;
 
-    @InjectMocks
+    @Mock
+    private AccountJdbcRepository accountJdbcRepository;
+
+    @Mock
+    private AccountSlotRepository accountSlotRepository;
+
+    @Mock
+    private AccrualService accrualService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
     private TransferService transferService;
 
     private Account fromAccount;
@@ -31,6 +60,9 @@ class TransferServiceTest {
 
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        transferService = transferService(Engine.ENTITY);
+
         fromAccount = new Account();
         fromAccount.setId(1L);
         User user = new User();
@@ -49,8 +81,8 @@ class TransferServiceTest {
     @Test
     void transfer_success() {
         // Arrange
-        when(accountRepository.findByUserId(1L)).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findByUserId(2L)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByUserIdForUpdate(1L)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserIdForUpdate(2L)).thenReturn(Optional.of(toAccount));
 
         // Act
         transferService.transfer(1L, 2L, new BigDecimal("300.00"));
@@ -59,13 +91,13 @@ class TransferServiceTest {
         assertEquals(new BigDecimal("700.00"), fromAccount.getBalance());
         assertEquals(new BigDecimal("800.00"), toAccount.getBalance());
         verify(accountRepository, times(2)).save(any());
+        verify(accountRepository).setLocalLockTimeout("2000ms");
     }
 
     @Test
     void transfer_insufficientFunds_throwsException() {
         // Arrange
-        when(accountRepository.findByUserId(1L)).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findByUserId(2L)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByUserIdForUpdate(1L)).thenReturn(Optional.of(fromAccount));
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
@@ -77,7 +109,7 @@ class TransferServiceTest {
     @Test
     void transfer_userNotFound_throwsException() {
         // Arrange
-        when(accountRepository.findByUserId(1L)).thenReturn(Optional.empty());
+        when(accountRepository.findByUserIdForUpdate(1L)).thenReturn(Optional.empty());
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
@@ -85,4 +117,251 @@ class TransferServiceTest {
         assertEquals("Sender account not found", exception.getMessage());
         verify(accountRepository, never()).save(any());
     }
+
+    @Test
+    void transfer_locksAccountsInAscendingUserIdOrder() {
+        // Arrange
+        when(accountRepository.findByUserIdForUpdate(1L)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserIdForUpdate(2L)).thenReturn(Optional.of(toAccount));
+
+        // Act: перевод от пользователя с большим id
+        transferService.transfer(2L, 1L, new BigDecimal("100.00"));
+
+        // Assert
+        InOrder inOrder = inOrder(accountRepository);
+        inOrder.verify(accountRepository).findByUserIdForUpdate(1L);
+        inOrder.verify(accountRepository).findByUserIdForUpdate(2L);
+        assertEquals(new BigDecimal("400.00"), toAccount.getBalance());
+        assertEquals(new BigDecimal("1100.00"), fromAccount.getBalance());
+    }
+
+    @Test
+    void transfer_materializesAccruedInterestBeforeChangingBalances() {
+        // Arrange
+        when(accountRepository.findByUserIdForUpdate(1L)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserIdForUpdate(2L)).thenReturn(Optional.of(toAccount));
+
+        // Act
+        transferService.transfer(1L, 2L, new BigDecimal("300.00"));
+
+        // Assert
+        InOrder inOrder = inOrder(accrualService, accountRepository);
+        inOrder.verify(accrualService).materialize(List.of(1L, 2L));
+        inOrder.verify(accountRepository).findByUserIdForUpdate(1L);
+    }
+
+    @Test
+    void transfer_lockFailure_retriesAndSucceeds() {
+        // Arrange
+        when(accountRepository.findByUserIdForUpdate(1L))
+                .thenThrow(new PessimisticLockingFailureException("lock timeout"))
+                .thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserIdForUpdate(2L)).thenReturn(Optional.of(toAccount));
+
+        // Act
+        transferService.transfer(1L, 2L, new BigDecimal("300.00"));
+
+        // Assert
+        assertEquals(new BigDecimal("700.00"), fromAccount.getBalance());
+        verify(accountRepository, times(2)).findByUserIdForUpdate(1L);
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void transfer_lockFailure_givesUpAfterMaxRetries() {
+        // Arrange
+        when(accountRepository.findByUserIdForUpdate(1L))
+                .thenThrow(new PessimisticLockingFailureException("lock timeout"));
+
+        // Act & Assert
+        assertThrows(PessimisticLockingFailureException.class,
+                () -> transferService.transfer(1L, 2L, new BigDecimal("300.00")));
+        verify(accountRepository, times(3)).findByUserIdForUpdate(1L);
+        verify(accountRepository, never()).save(any());
+    }
+
+    @Test
+    void transfer_shardedReceiver_creditsSlotWithoutLockingReceiver() {
+        // Arrange
+        when(accountRepository.findByUserIdForUpdate(1L)).thenReturn(Optional.of(fromAccount));
+        when(accountSlotRepository.creditRandomSlot(2L, new BigDecimal("300.00"))).thenReturn(true);
+
+        // Act
+        transferService.transfer(1L, 2L, new BigDecimal("300.00"));
+
+        // Assert
+        assertEquals(new BigDecimal("700.00"), fromAccount.getBalance());
+        assertEquals(new BigDecimal("500.00"), toAccount.getBalance());
+        verify(accountRepository, never()).findByUserIdForUpdate(2L);
+    }
+
+    @Test
+    void transfer_mainBalanceInsufficient_drainsSenderSlots() {
+        // Arrange
+        when(accountRepository.findByUserIdForUpdate(1L)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserIdForUpdate(2L)).thenReturn(Optional.of(toAccount));
+        when(accountSlotRepository.drain(List.of(1L))).thenReturn(Map.of(1L, new BigDecimal("600.00")));
+
+        // Act
+        transferService.transfer(1L, 2L, new BigDecimal("1500.00"));
+
+        // Assert
+        assertEquals(new BigDecimal("100.00"), fromAccount.getBalance());
+        assertEquals(new BigDecimal("2000.00"), toAccount.getBalance());
+    }
+
+    @Test
+    void transfer_optimistic_success_withoutLocking() {
+        // Arrange
+        transferService = transferService(Engine.OPTIMISTIC);
+        when(accountRepository.findByUserId(1L)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserId(2L)).thenReturn(Optional.of(toAccount));
+
+        // Act
+        transferService.transfer(1L, 2L, new BigDecimal("300.00"));
+
+        // Assert
+        assertEquals(new BigDecimal("700.00"), fromAccount.getBalance());
+        assertEquals(new BigDecimal("800.00"), toAccount.getBalance());
+        verify(accountRepository, never()).findByUserIdForUpdate(any());
+    }
+
+    @Test
+    void transfer_optimistic_versionConflict_retriesAndCountsConflict() {
+        // Arrange
+        transferService = transferService(Engine.OPTIMISTIC);
+        when(accountRepository.findByUserId(1L)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserId(2L)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.save(fromAccount))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Account.class, 1L))
+                .thenReturn(fromAccount);
+
+        // Act
+        transferService.transfer(1L, 2L, new BigDecimal("300.00"));
+
+        // Assert
+        verify(accountRepository, times(2)).findByUserId(1L);
+        verify(transactionManager).rollback(any());
+        assertEquals(1, meterRegistry.counter("transfer.conflicts", "type", "optimistic").count());
+        assertEquals(1, meterRegistry.counter("transfer.retries", "type", "optimistic").count());
+    }
+
+    @Test
+    void transfer_conditionalUpdate_success() {
+        // Arrange
+        transferService = transferService(Engine.CONDITIONAL_UPDATE);
+        when(accountRepository.debit(1L, new BigDecimal("300.00"))).thenReturn(1);
+        when(accountRepository.credit(2L, new BigDecimal("300.00"))).thenReturn(1);
+
+        // Act
+        transferService.transfer(1L, 2L, new BigDecimal("300.00"));
+
+        // Assert
+        verify(accountRepository, never()).findByUserIdForUpdate(any());
+        verify(accountRepository, never()).save(any());
+    }
+
+    @Test
+    void transfer_conditionalUpdate_creditsFirstWhenSenderIdIsGreater() {
+        // Arrange
+        transferService = transferService(Engine.CONDITIONAL_UPDATE);
+        when(accountRepository.debit(2L, new BigDecimal("300.00"))).thenReturn(1);
+        when(accountRepository.credit(1L, new BigDecimal("300.00"))).thenReturn(1);
+
+        // Act
+        transferService.transfer(2L, 1L, new BigDecimal("300.00"));
+
+        // Assert
+        InOrder inOrder = inOrder(accountRepository);
+        inOrder.verify(accountRepository).credit(1L, new BigDecimal("300.00"));
+        inOrder.verify(accountRepository).debit(2L, new BigDecimal("300.00"));
+    }
+
+    @Test
+    void transfer_conditionalUpdate_insufficientFunds_throwsException() {
+        // Arrange
+        transferService = transferService(Engine.CONDITIONAL_UPDATE);
+        when(accountRepository.debit(1L, new BigDecimal("1500.00"))).thenReturn(0);
+        when(accountRepository.existsByUserId(1L)).thenReturn(true);
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> transferService.transfer(1L, 2L, new BigDecimal("1500.00")));
+        assertEquals("Insufficient funds", exception.getMessage());
+        verify(accountRepository, never()).credit(any(), any());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void transfer_conditionalUpdate_receiverNotFound_throwsException() {
+        // Arrange
+        transferService = transferService(Engine.CONDITIONAL_UPDATE);
+        when(accountRepository.debit(1L, new BigDecimal("300.00"))).thenReturn(1);
+        when(accountRepository.credit(2L, new BigDecimal("300.00"))).thenReturn(0);
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> transferService.transfer(1L, 2L, new BigDecimal("300.00")));
+        assertEquals("Receiver account not found", exception.getMessage());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void transferBatch_appliesTransfersInOrderAndReportsFailures() {
+        // Arrange
+        when(accountJdbcRepository.lockBalances(any())).thenReturn(Map.of(
+                1L, new BigDecimal("1000.00"),
+                2L, new BigDecimal("500.00"),
+                3L, new BigDecimal("0.00")));
+        List<TransferRequestDTO> transfers = List.of(
+                new TransferRequestDTO(2L, new BigDecimal("600.00")),
+                new TransferRequestDTO(4L, new BigDecimal("100.00")),
+                new TransferRequestDTO(3L, new BigDecimal("500.00")));
+
+        // Act
+        List<TransferResultDTO> results = transferService.transferBatch(1L, transfers);
+
+        // Assert
+        assertEquals(List.of(TransferStatus.COMPLETED, TransferStatus.FAILED, TransferStatus.FAILED),
+                results.stream().map(TransferResultDTO::status).toList());
+        assertEquals("Receiver account not found", results.get(1).message());
+        assertEquals("Insufficient funds", results.get(2).message());
+        verify(accountJdbcRepository).lockBalances(Set.of(1L, 2L, 3L, 4L));
+        verify(accountJdbcRepository).addToBalances(Map.of(
+                1L, new BigDecimal("-600.00"),
+                2L, new BigDecimal("600.00")));
+    }
+
+    @Test
+    void transferBatch_tooManyTransfers_throwsException() {
+        List<TransferRequestDTO> transfers = List.of(
+                new TransferRequestDTO(2L, BigDecimal.ONE),
+                new TransferRequestDTO(3L, BigDecimal.ONE),
+                new TransferRequestDTO(4L, BigDecimal.ONE),
+                new TransferRequestDTO(5L, BigDecimal.ONE));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> transferService.transferBatch(1L, transfers));
+        assertEquals("Transfer batch cannot exceed 3 transfers", exception.getMessage());
+        verifyNoInteractions(accountJdbcRepository);
+    }
+
+    @Test
+    void transferBatch_selfTransfer_rejectsWholeBatch() {
+        List<TransferRequestDTO> transfers = List.of(
+                new TransferRequestDTO(2L, BigDecimal.ONE),
+                new TransferRequestDTO(1L, BigDecimal.ONE));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> transferService.transferBatch(1L, transfers));
+        assertEquals("Transfer #1: cannot transfer to the same user", exception.getMessage());
+        verifyNoInteractions(accountJdbcRepository);
+    }
+
+    private TransferService transferService(Engine engine) {
+        TransferProperties properties = new TransferProperties(engine, Duration.ofSeconds(2), 2, Duration.ZERO, 3,
+                new GroupCommit(false, 100, Duration.ZERO, 100));
+        return new TransferService(accountRepository, accountJdbcRepository, accountSlotRepository, accrualService,
+                new TransactionTemplate(transactionManager), properties, meterRegistry, Optional.empty());
+    }
 }
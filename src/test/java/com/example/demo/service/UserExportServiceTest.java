@@ -0,0 +1,121 @@
+package com.example.demo.service;
+
+import com.example.demo.TestcontainersConfiguration;
+import com.example.demo.dto.ExportFormat;
+import com.example.demo.dto.UserDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "balance.scheduler.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+@Transactional // Выгрузка присоединяется к транзакции теста и видит вставленные строки
+class UserExportServiceTest {
+
+    @Autowired
+    private UserExportService exportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void export_ndjson_writesOneUserPerLineInIdOrder() throws IOException {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long count = exportService.export(ExportFormat.NDJSON, out);
+
+        // Assert
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(count, lines.size());
+        assertEquals(jdbcTemplate.queryForObject("SELECT count(*) FROM users", Long.class), count);
+        assertEquals(new UserDTO(1L, "John Doe", "15.05.1990", List.of("john.doe@example.com"), List.of("71234567890")),
+                objectMapper.readValue(lines.getFirst(), UserDTO.class));
+        assertTrue(out.toString(StandardCharsets.UTF_8).endsWith("\n"));
+    }
+
+    @Test
+    void export_csv_escapesFieldsAndJoinsContacts() throws IOException {
+        // Arrange
+        long id = jdbcTemplate.queryForObject("""
+                INSERT INTO users (name, date_of_birth, password) VALUES ('Doe, "JD" John', DATE '2000-02-29', 'password')
+                RETURNING id
+                """, Long.class);
+        jdbcTemplate.update("INSERT INTO email_data (user_id, email) VALUES (?, 'jd1@example.com'), (?, 'jd2@example.com')", id, id);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        exportService.export(ExportFormat.CSV, out);
+
+        // Assert
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals("id,name,dateOfBirth,emails,phones", lines.getFirst());
+        assertEquals("1,John Doe,15.05.1990,john.doe@example.com,71234567890", lines.get(1));
+        assertEquals(id + ",\"Doe, \"\"JD\"\" John\",29.02.2000,jd1@example.com;jd2@example.com,", lines.getLast());
+    }
+
+    /**
+     * mvn test -Dtest=UserExportServiceTest -Dbenchmark=true [-Dexport.users=1000000]
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void export_sustainsHundredThousandRowsPerSecond() throws IOException {
+        int users = Integer.getInteger("export.users", 1_000_000);
+        jdbcTemplate.update("""
+                INSERT INTO users (name, date_of_birth, password)
+                SELECT 'Export ' || g, DATE '1950-01-01' + g % 20000, 'password' FROM generate_series(1, ?) g
+                """, users);
+        jdbcTemplate.update("""
+                INSERT INTO email_data (user_id, email) SELECT id, 'export' || id || '@example.com' FROM users WHERE id > 3
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO phone_data (user_id, phone) SELECT id, '7' || lpad(id::text, 10, '0') FROM users WHERE id > 3
+                """);
+        jdbcTemplate.execute("ANALYZE users, email_data, phone_data");
+
+        // Прогрев JIT: первый проход заметно медленнее установившегося
+        exportService.export(ExportFormat.NDJSON, OutputStream.nullOutputStream());
+        for (ExportFormat format : ExportFormat.values()) {
+            long[] bytes = {0};
+            OutputStream sink = new OutputStream() {
+                @Override
+                public void write(int b) {
+                    bytes[0]++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    bytes[0] += len;
+                }
+            };
+            long start = System.nanoTime();
+            long count = exportService.export(format, sink);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double rate = count / seconds;
+            System.out.printf("%s: %d rows, %d MB in %.2f s, %.0f rows/s%n", format, count, bytes[0] >> 20, seconds, rate);
+            assertTrue(rate >= 100_000, format + ": " + rate + " rows/s");
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.demo.service;
+
+import com.example.demo.TestcontainersConfiguration;
+import com.example.demo.dto.EmailDTO;
+import com.example.demo.dto.UserDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Без @Transactional: инвалидация срабатывает только после настоящего коммита
+ */
+@SpringBootTest(properties = "balance.scheduler.enabled=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(TestcontainersConfiguration.class)
+class UserSearchCacheTest {
+
+    @Autowired
+    private UserSearchCache searchCache;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Pageable pageable = PageRequest.of(0, 10);
+
+    @Test
+    void get_returnsCachedPage_untilInvalidated() {
+        // Arrange
+        String filter = UUID.randomUUID().toString();
+        UserDTO user = new UserDTO(1L, "John Doe", "15.05.1990", List.of("john.doe@example.com"), List.of());
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        Page<UserDTO> first = searchCache.get(pageable, () -> {
+            loads.incrementAndGet();
+            return new PageImpl<>(List.of(user), pageable, 1);
+        }, filter);
+        Page<UserDTO> cached = searchCache.get(pageable, () -> {
+            loads.incrementAndGet();
+            return Page.empty();
+        }, filter);
+        searchCache.invalidate();
+        Page<UserDTO> reloaded = searchCache.get(pageable, () -> {
+            loads.incrementAndGet();
+            return Page.empty();
+        }, filter);
+
+        // Assert
+        assertEquals(first.getContent(), cached.getContent());
+        assertEquals(1, cached.getTotalElements());
+        assertEquals(0, reloaded.getTotalElements());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_nullFilterAndEmptyFilter_useDifferentKeys() {
+        searchCache.get(pageable, () -> new PageImpl<>(List.of(), pageable, 0), "mode", null);
+        assertEquals(7, searchCache.get(pageable, () -> new PageImpl<>(List.of(), pageable, 7), "mode", "").getTotalElements());
+    }
+
+    @Test
+    void invalidate_insideTransaction_appliesOnlyAfterCommit() {
+        long before = searchCache.generation();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            searchCache.invalidate();
+            assertEquals(before, searchCache.generation());
+        });
+        assertEquals(before + 1, searchCache.generation());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            searchCache.invalidate();
+            status.setRollbackOnly();
+        });
+        assertEquals(before + 1, searchCache.generation());
+    }
+
+    @Test
+    void get_insideWriteTransaction_bypassesCache() {
+        String filter = UUID.randomUUID().toString();
+        transactionTemplate.executeWithoutResult(status ->
+                searchCache.get(pageable, () -> new PageImpl<>(List.of(), pageable, 5), filter));
+
+        assertEquals(0, searchCache.get(pageable, () -> new PageImpl<>(List.of(), pageable, 0), filter).getTotalElements());
+    }
+
+    @Test
+    void get_concurrentIdenticalSearches_loadOnce() throws Exception {
+        // Arrange: загрузка ждёт, пока к ней присоединятся все остальные вызовы
+        String filter = UUID.randomUUID().toString();
+        int callers = 8;
+        double coalescedBefore = coalesced();
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Page<UserDTO>> loader = () -> {
+            loads.incrementAndGet();
+            awaitCoalesced(coalescedBefore + callers - 1);
+            return new PageImpl<>(List.of(), pageable, 3);
+        };
+
+        // Act
+        List<Future<Page<UserDTO>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> searchCache.get(pageable, loader, filter)));
+            }
+        }
+
+        // Assert
+        for (Future<Page<UserDTO>> result : results) {
+            assertEquals(3, result.get().getTotalElements());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(coalescedBefore + callers - 1, coalesced());
+    }
+
+    @Test
+    void searchUsers_seesNewEmailAfterAddEmail() {
+        String email = "cache." + UUID.randomUUID().toString().substring(0, 8) + "@example.com";
+        assertEquals(0, userService.searchUsers(null, null, null, null, null, email, pageable).getTotalElements());
+
+        userService.addEmail(3L, new EmailDTO(email));
+        try {
+            assertEquals(List.of("Alice Johnson"), userService.searchUsers(null, null, null, null, null, email, pageable)
+                    .getContent().stream().map(UserDTO::name).toList());
+        } finally {
+            userService.deleteEmail(3L, email);
+        }
+        assertEquals(0, userService.searchUsers(null, null, null, null, null, email, pageable).getTotalElements());
+    }
+
+    private double coalesced() {
+        return meterRegistry.get("cache.coalesced").tag("cache", UserSearchCache.NAME).counter().count();
+    }
+
+    private void awaitCoalesced(double expected) {
+        for (int i = 0; i < 500 && coalesced() < expected; i++) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.example.demo.service;
 import com.example.demo.TestcontainersConfiguration;
 import com.example.demo.dto.EmailDTO;
 import com.example.demo.dto.UserDTO;
+import com.example.demo.dto.UserSliceDTO;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
 import org.junit.jupiter.api.Test;
@@ -17,6 +18,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.stream.LongStream;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -63,10 +67,33 @@ class UserServiceTest {
         assertEquals("User not found with id: 999", exception.getMessage());
     }
 
+    @Test
+    void getUsersByIds_returnsUsersInRequestOrder_skippingUnknownAndDuplicates() {
+        // Arrange: пользователь 2 уже в кэше, 3 и 999 — нет
+        UserDTO cached = userService.getUserById(2L);
+
+        // Act
+        List<UserDTO> users = userService.getUsersByIds(List.of(3L, 999L, 2L, 3L));
+
+        // Assert
+        assertEquals(List.of(3L, 2L), users.stream().map(UserDTO::id).toList());
+        assertEquals(List.of("alice.johnson@example.com"), users.getFirst().emails());
+        assertEquals(List.of("72345678901"), users.getFirst().phones());
+        assertEquals("10.11.1995", users.getFirst().dateOfBirth());
+        assertEquals(cached, users.get(1));
+        assertEquals(users.getFirst(), userService.getUserById(3L));
+    }
+
+    @Test
+    void getUsersByIds_tooManyIds_throwsIllegalArgumentException() {
+        List<Long> ids = LongStream.rangeClosed(1, UserService.MAX_BATCH_SIZE + 1).boxed().toList();
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersByIds(ids));
+    }
+
     @Test
     void searchUsers_byPhone_success() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<UserDTO> result = userService.searchUsers(null, null, phoneNumber, null, pageable);
+        Page<UserDTO> result = userService.searchUsers(null, null, null, null, phoneNumber, null, pageable);
         assertEquals(1, result.getTotalElements());
         assertEquals(name, result.getContent().get(0).name());
     }
@@ -74,7 +101,7 @@ class UserServiceTest {
     @Test
     void searchUsers_byEmail_success() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<UserDTO> result = userService.searchUsers(null, null, null, emailAdress, pageable);
+        Page<UserDTO> result = userService.searchUsers(null, null, null, null, null, emailAdress, pageable);
         assertEquals(1, result.getTotalElements());
         assertEquals(name, result.getContent().get(0).name());
     }
@@ -82,7 +109,7 @@ class UserServiceTest {
     @Test
     void searchUsers_byNameAndDateOfBirth_success() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<UserDTO> result = userService.searchUsers("John", dateOfBirth, null, null, pageable);
+        Page<UserDTO> result = userService.searchUsers("John", dateOfBirth, null, null, null, null, pageable);
         assertEquals(1, result.getTotalElements());
         assertEquals(name, result.getContent().get(0).name());
     }
@@ -90,10 +117,114 @@ class UserServiceTest {
     @Test
     void searchUsers_emptyResult() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<UserDTO> result = userService.searchUsers(null, null, null, "nonexistent@example.com", pageable);
+        Page<UserDTO> result = userService.searchUsers(null, null, null, null, null, "nonexistent@example.com", pageable);
         assertEquals(0, result.getTotalElements());
     }
 
+    @Test
+    void searchUsers_byNameOnly_success() {
+        Pageable pageable = PageRequest.of(0, 10);
+        Page<UserDTO> result = userService.searchUsers("Jane", null, null, null, null, null, pageable);
+        assertEquals(1, result.getTotalElements());
+        assertEquals("Jane Smith", result.getContent().get(0).name());
+    }
+
+    @Test
+    void searchUsers_combinedFilters_mustAllMatch() {
+        Pageable pageable = PageRequest.of(0, 10);
+        assertEquals(1, userService.searchUsers("John", null, null, null, phoneNumber, emailAdress, pageable).getTotalElements());
+        assertEquals(0, userService.searchUsers("Alice", null, null, null, phoneNumber, null, pageable).getTotalElements());
+    }
+
+    @Test
+    void searchUsers_namePrefixWithWildcards_matchedLiterally() {
+        Pageable pageable = PageRequest.of(0, 10);
+        assertEquals(0, userService.searchUsers("J_hn", null, null, null, null, null, pageable).getTotalElements());
+        assertEquals(0, userService.searchUsers("%", null, null, null, null, null, pageable).getTotalElements());
+    }
+
+    @Test
+    void searchUsers_byDateOfBirthRange_comparesDates() {
+        Pageable pageable = PageRequest.of(0, 10);
+        // Как строки "15.05.1990" > "01.01.1991", как даты — нет
+        Page<UserDTO> result = userService.searchUsers(null, null, "01.06.1985", "01.01.1991", null, null, pageable);
+        assertEquals(List.of(name), result.getContent().stream().map(UserDTO::name).toList());
+        assertEquals(dateOfBirth, result.getContent().getFirst().dateOfBirth());
+    }
+
+    @Test
+    void searchUsers_byOpenDateOfBirthRange_boundsInclusive() {
+        Pageable pageable = PageRequest.of(0, 10);
+        assertEquals(2, userService.searchUsers(null, null, dateOfBirth, null, null, null, pageable).getTotalElements());
+        assertEquals(2, userService.searchUsers(null, null, null, dateOfBirth, null, null, pageable).getTotalElements());
+    }
+
+    @Test
+    void searchUsers_invalidDateOfBirth_throwsIllegalArgumentException() {
+        Pageable pageable = PageRequest.of(0, 10);
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.searchUsers(null, null, "31.02.1990", null, null, null, pageable));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.searchUsers(null, "1990-05-15", null, null, null, null, pageable));
+    }
+
+    @Test
+    void searchUsersBySimilarity_ignoresCaseAndTypos() {
+        Pageable pageable = PageRequest.of(0, 10);
+        Page<UserDTO> result = userService.searchUsersBySimilarity("jon doe", null, null, null, null, null, pageable);
+        assertEquals(name, result.getContent().getFirst().name());
+    }
+
+    @Test
+    void searchUsersBySimilarity_matchesAnyPartOfName_withFilters() {
+        Pageable pageable = PageRequest.of(0, 10);
+        assertEquals("Jane Smith", userService.searchUsersBySimilarity("smith", null, null, null, null, null, pageable)
+                .getContent().getFirst().name());
+        assertEquals(0, userService.searchUsersBySimilarity("smith", null, null, null, phoneNumber, null, pageable).getTotalElements());
+    }
+
+    @Test
+    void searchUsersBySimilarity_blankName_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.searchUsersBySimilarity(" ", null, null, null, null, null, PageRequest.of(0, 10)));
+    }
+
+    @Test
+    void scrollUsers_walksAllPagesInNameOrder() {
+        UserSliceDTO first = userService.scrollUsers(null, null, null, null, null, 2);
+        UserSliceDTO second = userService.scrollUsers(null, null, null, null, first.next(), 2);
+
+        assertEquals(List.of("Alice Johnson", "Jane Smith"), first.content().stream().map(UserDTO::name).toList());
+        assertNotNull(first.next());
+        assertEquals(List.of("John Doe"), second.content().stream().map(UserDTO::name).toList());
+        assertNull(second.next());
+    }
+
+    @Test
+    void scrollUsers_withFilter_appliesFilterOnEveryPage() {
+        UserSliceDTO first = userService.scrollUsers("J", null, null, null, null, 1);
+        UserSliceDTO second = userService.scrollUsers("J", null, null, null, first.next(), 1);
+
+        assertEquals("Jane Smith", first.content().getFirst().name());
+        assertEquals("John Doe", second.content().getFirst().name());
+        assertNull(second.next());
+    }
+
+    @Test
+    void scrollUsers_invalidCursor_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> userService.scrollUsers(null, null, null, null, "not-a-cursor", 10));
+    }
+
+    @Test
+    void scrollUsers_sizeOutOfRange_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> userService.scrollUsers(null, null, null, null, null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.scrollUsers(null, null, null, null, null, UserService.MAX_SCROLL_SIZE + 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.scrollUsers(null, null, null, null, null, Integer.MAX_VALUE));
+        assertEquals(3, userService.scrollUsers(null, null, null, null, null, UserService.MAX_SCROLL_SIZE).content().size());
+    }
+
     @Test
     void addEmail_success() {
         EmailDTO emailDTO = new EmailDTO(newEmailAdress);